@@ -0,0 +1,41 @@
+package com.grzm.pqconninfo.alpha.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given pattern (all benchmarks by
+ * default) once for each thread count, reporting throughput, average time,
+ * and GC allocation rates.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar
+ *     com.grzm.pqconninfo.alpha.benchmarks.BenchmarkRunner
+ *     [pattern [threads,...]]
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() { }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args the benchmark pattern and the comma-separated thread counts
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        String pattern = args.length > 0 ? args[0] : ".*Benchmark.*";
+        String threadCounts = args.length > 1 ? args[1] : "1,4,16";
+
+        for (String threads : threadCounts.split(",")) {
+            Options options = new OptionsBuilder()
+                    .include(pattern)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
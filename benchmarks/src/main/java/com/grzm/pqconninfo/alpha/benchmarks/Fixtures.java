@@ -0,0 +1,120 @@
+package com.grzm.pqconninfo.alpha.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generated service file and passfile contents for the benchmarks.
+ *
+ * The entry the benchmarks look up is always the last one in the file, so
+ * lookups scan the whole file.
+ */
+public final class Fixtures {
+
+    /**
+     * The host of the looked-up entry.
+     */
+    public static final String HOST = "db.example.com";
+
+    /**
+     * The port of the looked-up entry.
+     */
+    public static final String PORT = "5432";
+
+    /**
+     * The dbname of the looked-up entry.
+     */
+    public static final String DBNAME = "inventory";
+
+    /**
+     * The user of the looked-up entry.
+     */
+    public static final String USER = "app_user";
+
+    /**
+     * The password of the looked-up entry.
+     */
+    public static final String PASSWORD = "s3cret";
+
+    private Fixtures() { }
+
+    /**
+     * Returns the name of the given service.
+     *
+     * @param i the index of the service
+     * @return the service name
+     */
+    public static String serviceName(final int i) {
+        return "service-" + i;
+    }
+
+    /**
+     * Returns a service file with the given number of services, the last of
+     * which points at the looked-up passfile entry.
+     *
+     * @param services the number of services
+     * @return the service file contents
+     */
+    public static String serviceFile(final int services) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# generated service file\n");
+        for (int i = 0; i < services - 1; i++) {
+            sb.append('[').append(serviceName(i)).append("]\n")
+                    .append("host=host-").append(i).append(".example.com\n")
+                    .append("port=").append(5432 + i % 10).append('\n')
+                    .append("dbname=db_").append(i).append('\n')
+                    .append("user=user_").append(i).append('\n')
+                    .append("sslmode=require\n")
+                    .append("application_name=app-").append(i).append("\n\n");
+        }
+        sb.append('[').append(serviceName(services - 1)).append("]\n")
+                .append("host=").append(HOST).append('\n')
+                .append("port=").append(PORT).append('\n')
+                .append("dbname=").append(DBNAME).append('\n')
+                .append("user=").append(USER).append('\n')
+                .append("sslmode=verify-full\n")
+                .append("connect_timeout=10\n")
+                .append("application_name=benchmark app\n");
+        return sb.toString();
+    }
+
+    /**
+     * Returns a passfile with the given number of lines, the last of which
+     * matches the looked-up entry. The given percentage of the other lines
+     * have wildcard fields; none of them match.
+     *
+     * @param lines           the number of lines
+     * @param wildcardPercent the percentage of wildcard lines
+     * @return the passfile contents
+     */
+    public static String passfile(final int lines,
+                                  final int wildcardPercent) {
+        Random random = new Random(lines * 31L + wildcardPercent);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines - 1; i++) {
+            if (random.nextInt(100) < wildcardPercent) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        sb.append("*:*:db_").append(i).append(":*:pw");
+                        break;
+                    case 1:
+                        sb.append("host-").append(i)
+                                .append(".example.com:*:*:*:pw");
+                        break;
+                    default:
+                        sb.append("*:").append(PORT).append(":*:user_")
+                                .append(i).append(":pw");
+                        break;
+                }
+            } else {
+                sb.append("host-").append(i).append(".example.com:")
+                        .append(5432 + i % 10).append(":db_").append(i)
+                        .append(":user_").append(i).append(":pw\\:").append(i);
+            }
+            sb.append('\n');
+        }
+        sb.append(HOST).append(':').append(PORT).append(':').append(DBNAME)
+                .append(':').append(USER).append(':').append(PASSWORD)
+                .append('\n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,192 @@
+package com.grzm.pqconninfo.alpha.benchmarks;
+
+import com.grzm.pqconninfo.alpha.Context;
+import com.grzm.pqconninfo.alpha.EnvVars;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Context serving environment variables, service files, and passfiles from
+ * memory, so benchmarks measure parsing and resolution rather than file I/O.
+ * Filenames are null, as with the test contexts, so caching contexts pass
+ * these files through.
+ */
+public final class InMemoryContext implements Context {
+
+    private final Map<String, String> env = new HashMap<>();
+    private byte[] userServiceFile;
+    private byte[] sysconfdirServiceFile;
+    private byte[] passfile;
+    private String systemUser;
+
+    /**
+     * Sets the given environment variable.
+     *
+     * @param var the environment variable
+     * @param val the value
+     * @return this context
+     */
+    public InMemoryContext setenv(final String var, final String val) {
+        env.put(var, val);
+        return this;
+    }
+
+    /**
+     * Sets the contents of the user service file.
+     *
+     * @param contents the service file contents
+     * @return this context
+     */
+    public InMemoryContext setUserServiceFile(final String contents) {
+        userServiceFile = bytes(contents);
+        return this;
+    }
+
+    /**
+     * Sets the contents of the sysconfdir service file.
+     *
+     * @param contents the service file contents
+     * @return this context
+     */
+    public InMemoryContext setSysconfdirServiceFile(final String contents) {
+        sysconfdirServiceFile = bytes(contents);
+        return this;
+    }
+
+    /**
+     * Sets the contents of the passfile, used for both the PGPASSFILE and the
+     * user passfile.
+     *
+     * @param contents the passfile contents
+     * @return this context
+     */
+    public InMemoryContext setPassfile(final String contents) {
+        passfile = bytes(contents);
+        return this;
+    }
+
+    /**
+     * Sets the system user.
+     *
+     * @param user the system user
+     * @return this context
+     */
+    public InMemoryContext setSystemUser(final String user) {
+        systemUser = user;
+        return this;
+    }
+
+    private static byte[] bytes(final String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static InputStream inputStream(final byte[] contents) {
+        return contents == null ? null : new ByteArrayInputStream(contents);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getenv(final String var) {
+        return env.get(var);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getEnvServiceFileInputStream() {
+        return inputStream(userServiceFile);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getUserServiceFilename() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getUserServiceFileInputStream() {
+        return inputStream(userServiceFile);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getEnvSysconfdirServiceFilename() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getEnvSysconfdirServiceFileInputStream() {
+        return inputStream(sysconfdirServiceFile);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getConfigSysconfdirServiceFilename() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getConfigSysconfdirServiceFileInputStream() {
+        return inputStream(sysconfdirServiceFile);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getSysconfdirServiceFileInputStream() {
+        return inputStream(sysconfdirServiceFile);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getEnvPassfileInputStream(final String envPassfile) {
+        return inputStream(passfile);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getUserPassfileFilename() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getUserPassfileInputStream() {
+        return inputStream(passfile);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getSystemUser() {
+        return systemUser;
+    }
+
+    /**
+     * Returns a context with the standard fixture: a service file with the
+     * given number of services, a passfile with the given number of lines and
+     * wildcard density, and PGSERVICE naming the last service.
+     *
+     * @param services        the number of services
+     * @param lines           the number of passfile lines
+     * @param wildcardPercent the percentage of wildcard passfile lines
+     * @return the context
+     */
+    public static InMemoryContext fixture(final int services,
+                                          final int lines,
+                                          final int wildcardPercent) {
+        return new InMemoryContext()
+                .setenv(PqConninfoOption.SERVICE.environmentVariable,
+                        Fixtures.serviceName(services - 1))
+                .setenv(EnvVars.PGSYSCONFDIR, "/in-memory")
+                .setUserServiceFile(Fixtures.serviceFile(services))
+                .setSysconfdirServiceFile(Fixtures.serviceFile(services))
+                .setPassfile(Fixtures.passfile(lines, wildcardPercent))
+                .setSystemUser("system_user");
+    }
+}
@@ -0,0 +1,62 @@
+package com.grzm.pqconninfo.alpha.benchmarks;
+
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.impl.EnumMapConninfoReader;
+import com.grzm.pqconninfo.alpha.impl.JdbcElf;
+import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translation of a resolved PqConninfo into JDBC connection parameters, a
+ * JDBC URL with query string, and connection Properties.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JdbcBenchmark {
+
+    private PqConninfo conninfo;
+    private JdbcConnectionParameters params;
+
+    @Setup
+    public void setUp() {
+        conninfo = new EnumMapConninfoReader().read(
+                InMemoryContext.fixture(1, 1, 0), new Properties());
+        params = JdbcConnectionParameters.from(conninfo);
+    }
+
+    @Benchmark
+    public JdbcConnectionParameters from() {
+        return JdbcConnectionParameters.from(conninfo);
+    }
+
+    @Benchmark
+    public String makeUrlWithQueryString() {
+        return JdbcElf.makeUrlWithQueryString(params);
+    }
+
+    @Benchmark
+    public Properties makeInfo() {
+        return JdbcElf.makeInfo(params);
+    }
+
+    @Benchmark
+    public Properties fromAndMakeInfo() {
+        return JdbcElf.makeInfo(JdbcConnectionParameters.from(conninfo));
+    }
+}
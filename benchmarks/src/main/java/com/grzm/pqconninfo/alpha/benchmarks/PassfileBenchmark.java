@@ -0,0 +1,87 @@
+package com.grzm.pqconninfo.alpha.benchmarks;
+
+import com.grzm.pqconninfo.alpha.CompiledPassfile;
+import com.grzm.pqconninfo.alpha.PackedPassfile;
+import com.grzm.pqconninfo.alpha.Passfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passfile password lookup: scanning the passfile stream with
+ * Passfile.getPassword, compiling it, and looking up a CompiledPassfile or
+ * a PackedPassfile.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PassfileBenchmark {
+
+    /**
+     * The number of passfile lines.
+     */
+    @Param({"1", "100", "1000", "10000"})
+    private int lines;
+
+    /**
+     * The percentage of passfile lines with wildcards.
+     */
+    @Param({"0", "10", "50", "100"})
+    private int wildcardPercent;
+
+    private byte[] contents;
+    private CompiledPassfile compiled;
+    private PackedPassfile packed;
+
+    @Setup
+    public void setUp() {
+        contents = Fixtures.passfile(lines, wildcardPercent)
+                .getBytes(StandardCharsets.UTF_8);
+        compiled = CompiledPassfile.from(new ByteArrayInputStream(contents));
+        packed = PackedPassfile.from(new ByteArrayInputStream(contents));
+    }
+
+    @Benchmark
+    public String getPassword() {
+        return Passfile.getPassword(Fixtures.HOST, Fixtures.PORT,
+                Fixtures.DBNAME, Fixtures.USER,
+                new ByteArrayInputStream(contents));
+    }
+
+    @Benchmark
+    public CompiledPassfile compile() {
+        return CompiledPassfile.from(new ByteArrayInputStream(contents));
+    }
+
+    @Benchmark
+    public String compiledGetPassword() {
+        return compiled.getPassword(Fixtures.HOST, Fixtures.PORT,
+                Fixtures.DBNAME, Fixtures.USER);
+    }
+
+    @Benchmark
+    public PackedPassfile pack() {
+        return PackedPassfile.from(new ByteArrayInputStream(contents));
+    }
+
+    @Benchmark
+    public String packedGetPassword() {
+        return packed.getPassword(Fixtures.HOST, Fixtures.PORT,
+                Fixtures.DBNAME, Fixtures.USER);
+    }
+}
@@ -0,0 +1,114 @@
+package com.grzm.pqconninfo.alpha.benchmarks;
+
+import com.grzm.pqconninfo.alpha.Passfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Passfile.parsePgpassLine with the regex-based implementation it
+ * replaced, over lines that match, mismatch early, mismatch late, or carry
+ * an escaped password.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PgpassLineBenchmark {
+
+    private static final String HOST = "db.example.com";
+    private static final String PORT = "5432";
+    private static final String DBNAME = "inventory";
+    private static final String USER = "app_user";
+
+    /**
+     * The kind of passfile line to parse.
+     */
+    @Param({"match", "hostMismatch", "userMismatch", "escaped", "wildcard"})
+    private String kind;
+
+    private String line;
+
+    @Setup
+    public void setUp() {
+        switch (kind) {
+            case "match":
+                line = "db.example.com:5432:inventory:app_user:s3cret";
+                break;
+            case "hostMismatch":
+                line = "db2.example.com:5432:inventory:app_user:s3cret";
+                break;
+            case "userMismatch":
+                line = "db.example.com:5432:inventory:admin:s3cret";
+                break;
+            case "escaped":
+                line = "db.example.com:5432:inventory:app_user:s3\\:cr\\\\et";
+                break;
+            case "wildcard":
+                line = "*:*:*:app_user:s3cret";
+                break;
+            default:
+                throw new IllegalArgumentException(kind);
+        }
+    }
+
+    @Benchmark
+    public void current(final Blackhole bh) {
+        bh.consume(Passfile.parsePgpassLine(HOST, PORT, DBNAME, USER, line));
+    }
+
+    @Benchmark
+    public void legacy(final Blackhole bh) {
+        bh.consume(Legacy.parsePgpassLine(HOST, PORT, DBNAME, USER, line));
+    }
+
+    /**
+     * Copy of the regex-based line parser Passfile.parsePgpassLine replaced,
+     * kept as the baseline.
+     */
+    static final class Legacy {
+        private Legacy() { }
+
+        static String parsePgpassLine(final String host,
+                                      final String port,
+                                      final String dbname,
+                                      final String user,
+                                      final String line) {
+            String[] fields = line.split("(?<!\\\\):");
+            if (fields.length < Passfile.MIN_FIELD_COUNT
+                    || Passfile.MAX_FIELD_COUNT < fields.length) {
+                return null;
+            }
+            Iterator<String> optsIter
+                    = Arrays.asList(host, port, dbname, user).iterator();
+            Iterator<String> fieldsIter = Arrays.asList(fields).iterator();
+            while (optsIter.hasNext() && fieldsIter.hasNext()) {
+                String field = fieldsIter.next();
+                if (!(field.equals(Passfile.WILDCARD)
+                        || field.equals(optsIter.next()))) {
+                    return null;
+                }
+            }
+            if (fields.length == Passfile.MIN_FIELD_COUNT) {
+                return null;
+            }
+            return fields[Passfile.PASSWORD_FIELD_OFFSET]
+                    .replaceAll("\\\\([\\\\:])", "$1");
+        }
+    }
+}
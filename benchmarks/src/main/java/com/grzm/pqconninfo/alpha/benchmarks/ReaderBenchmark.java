@@ -0,0 +1,79 @@
+package com.grzm.pqconninfo.alpha.benchmarks;
+
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.PqConninfoOptionsReader;
+import com.grzm.pqconninfo.alpha.impl.EnumMapConninfoReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end conninfo resolution with EnumMapConninfoReader: initial
+ * properties, service file, environment, system user, and passfile. The
+ * initial options are given either as Properties or as an EnumMap.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReaderBenchmark {
+
+    /**
+     * The number of services in the service files.
+     */
+    @Param({"1", "10", "100"})
+    private int services;
+
+    /**
+     * The number of passfile lines.
+     */
+    @Param({"1", "100", "1000"})
+    private int lines;
+
+    /**
+     * The percentage of passfile lines with wildcards.
+     */
+    @Param({"0", "50"})
+    private int wildcardPercent;
+
+    private InMemoryContext context;
+    private PqConninfoOptionsReader reader;
+    private Properties props;
+    private EnumMap<PqConninfoOption, String> opts;
+
+    @Setup
+    public void setUp() {
+        context = InMemoryContext.fixture(services, lines, wildcardPercent);
+        reader = new EnumMapConninfoReader();
+        props = new Properties();
+        props.setProperty(PqConninfoOption.APPLICATION_NAME.keyword,
+                "benchmark");
+        opts = new EnumMap<>(PqConninfoOption.class);
+        opts.put(PqConninfoOption.APPLICATION_NAME, "benchmark");
+    }
+
+    @Benchmark
+    public PqConninfo read() {
+        return reader.read(context, props);
+    }
+
+    @Benchmark
+    public PqConninfo readMap() {
+        return reader.read(context, opts);
+    }
+}
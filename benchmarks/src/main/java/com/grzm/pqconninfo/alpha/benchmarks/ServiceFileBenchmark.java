@@ -0,0 +1,71 @@
+package com.grzm.pqconninfo.alpha.benchmarks;
+
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.ServiceCatalog;
+import com.grzm.pqconninfo.alpha.ServiceFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service lookup: scanning the service file stream with
+ * ServiceFile.getServiceConninfo, parsing it into a ServiceCatalog, and
+ * looking up a ServiceCatalog.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceFileBenchmark {
+
+    /**
+     * The number of services in the service file.
+     */
+    @Param({"1", "10", "100", "1000"})
+    private int services;
+
+    private byte[] contents;
+    private String service;
+    private ServiceCatalog catalog;
+
+    @Setup
+    public void setUp() throws IOException {
+        contents = Fixtures.serviceFile(services)
+                .getBytes(StandardCharsets.UTF_8);
+        service = Fixtures.serviceName(services - 1);
+        catalog = ServiceCatalog.parse(new ByteArrayInputStream(contents));
+    }
+
+    @Benchmark
+    public EnumMap<PqConninfoOption, String> getServiceConninfo()
+            throws IOException {
+        return ServiceFile.getServiceConninfo(service,
+                new ByteArrayInputStream(contents));
+    }
+
+    @Benchmark
+    public ServiceCatalog parseCatalog() throws IOException {
+        return ServiceCatalog.parse(new ByteArrayInputStream(contents));
+    }
+
+    @Benchmark
+    public EnumMap<PqConninfoOption, String> catalogGetServiceConninfo() {
+        return catalog.getServiceConninfo(service);
+    }
+}
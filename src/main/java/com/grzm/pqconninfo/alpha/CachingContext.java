@@ -0,0 +1,404 @@
+package com.grzm.pqconninfo.alpha;
+
+import com.grzm.pqconninfo.alpha.util.FileStamp;
+import com.grzm.pqconninfo.alpha.util.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Context decorator that keeps the contents of service files and passfiles
+ * in memory.
+ *
+ * Each time a file is requested, its attributes are read and compared with
+ * those of the cached contents. If the file key, size, modification time
+ * (and, on POSIX systems, permissions) are unchanged, the cached contents
+ * are returned without opening the file. Otherwise the wrapped context is
+ * asked for the file and its contents are cached for next time.
+ *
+ * Along with the contents, each cached file keeps the index parsed from it
+ * (a ServiceCatalog of a service file, a CompiledPassfile of a passfile)
+ * and returns it from the Context index methods, so EnumMapConninfoReader
+ * parses a file once per change rather than on every read.
+ *
+ * Files the wrapped context doesn't provide a filename for (such as those
+ * of test contexts) are passed through uncached.
+ *
+ * When the files are watched by a ContextFileWatcher, the caching context
+ * can be created without verification on read. Cached contents are then
+ * returned without reading any file attributes until the watcher reports
+ * the file has changed.
+ */
+public final class CachingContext implements Context, FileChangeListener {
+
+    /**
+     * The wrapped context.
+     */
+    private final Context context;
+
+    /**
+     * Cached file contents, keyed by filename.
+     */
+    private final ConcurrentHashMap<String, CachedFile> files
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Whether file attributes are checked against the cached contents on
+     * each read.
+     */
+    private final boolean verifyOnRead;
+
+    /**
+     * Count of invalidations, used to detect an invalidation racing with
+     * loading a file.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Creates a CachingContext wrapping the given context, which checks the
+     * file attributes on each read.
+     *
+     * @param wrapped the context to wrap
+     */
+    public CachingContext(final Context wrapped) {
+        this(wrapped, true);
+    }
+
+    /**
+     * Creates a CachingContext wrapping the given context.
+     *
+     * @param wrapped the context to wrap
+     * @param verify  whether to check file attributes on each read.
+     *                If false, cached contents are used until the file is
+     *                invalidated.
+     */
+    public CachingContext(final Context wrapped, final boolean verify) {
+        this.context = wrapped;
+        this.verifyOnRead = verify;
+    }
+
+    /**
+     * Discards the cached contents of the given file.
+     *
+     * @param filename the name of the file
+     */
+    public void invalidate(final String filename) {
+        invalidations.incrementAndGet();
+        files.remove(filename);
+    }
+
+    /**
+     * Discards all cached file contents.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        files.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void fileChanged(final String filename) {
+        invalidate(filename);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getenv(final String var) {
+        return context.getenv(var);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getEnvServiceFileInputStream() {
+        return cached(context.getenv(EnvVars.PGSERVICEFILE),
+                context::getEnvServiceFileInputStream);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getUserServiceFilename() {
+        return context.getUserServiceFilename();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getUserServiceFileInputStream() {
+        return cached(context.getUserServiceFilename(),
+                context::getUserServiceFileInputStream);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getEnvSysconfdirServiceFilename() {
+        return context.getEnvSysconfdirServiceFilename();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getEnvSysconfdirServiceFileInputStream() {
+        return cached(context.getEnvSysconfdirServiceFilename(),
+                context::getEnvSysconfdirServiceFileInputStream);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getConfigSysconfdirServiceFilename() {
+        return context.getConfigSysconfdirServiceFilename();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getConfigSysconfdirServiceFileInputStream() {
+        return cached(context.getConfigSysconfdirServiceFilename(),
+                context::getConfigSysconfdirServiceFileInputStream);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getSysconfdirServiceFileInputStream() {
+        if (context.getenv(EnvVars.PGSYSCONFDIR) != null) {
+            return getEnvSysconfdirServiceFileInputStream();
+        }
+        return getConfigSysconfdirServiceFileInputStream();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getEnvPassfileInputStream(final String envPassfile) {
+        return cached(envPassfile,
+                () -> context.getEnvPassfileInputStream(envPassfile));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getUserPassfileFilename() {
+        return context.getUserPassfileFilename();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getUserPassfileInputStream() {
+        return cached(context.getUserPassfileFilename(),
+                context::getUserPassfileInputStream);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getSystemUser() {
+        return context.getSystemUser();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ServiceCatalog getEnvServiceCatalog() {
+        String filename = context.getenv(EnvVars.PGSERVICEFILE);
+        return index(filename, context::getEnvServiceFileInputStream,
+                ServiceCatalog.class,
+                is -> ServiceCatalog.parse(filename, is));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ServiceCatalog getUserServiceCatalog() {
+        String filename = context.getUserServiceFilename();
+        return index(filename, context::getUserServiceFileInputStream,
+                ServiceCatalog.class,
+                is -> ServiceCatalog.parse(filename, is));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ServiceCatalog getEnvSysconfdirServiceCatalog() {
+        String filename = context.getEnvSysconfdirServiceFilename();
+        return index(filename,
+                context::getEnvSysconfdirServiceFileInputStream,
+                ServiceCatalog.class,
+                is -> ServiceCatalog.parse(filename, is));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ServiceCatalog getConfigSysconfdirServiceCatalog() {
+        String filename = context.getConfigSysconfdirServiceFilename();
+        return index(filename,
+                context::getConfigSysconfdirServiceFileInputStream,
+                ServiceCatalog.class,
+                is -> ServiceCatalog.parse(filename, is));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompiledPassfile getEnvCompiledPassfile(final String envPassfile) {
+        return index(envPassfile,
+                () -> context.getEnvPassfileInputStream(envPassfile),
+                CompiledPassfile.class, CompiledPassfile::from);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompiledPassfile getUserCompiledPassfile() {
+        return index(context.getUserPassfileFilename(),
+                context::getUserPassfileInputStream,
+                CompiledPassfile.class, CompiledPassfile::from);
+    }
+
+    /**
+     * Returns the contents of the given file, from the cache if the file is
+     * unchanged, or from the source (caching the result) otherwise.
+     *
+     * When verifying on read, if the file attributes can't be read, the
+     * source is used directly and nothing is cached.
+     *
+     * @param filename the name of the file, or null if not known
+     * @param source   the wrapped context's input stream for the file
+     * @return the input stream of the file contents, or null
+     */
+    private InputStream cached(final String filename,
+                               final Supplier<InputStream> source) {
+        CachedFile cachedFile = cachedFile(filename, source);
+        return cachedFile == null
+                ? source.get() : cachedFile.newInputStream();
+    }
+
+    /**
+     * Returns the index parsed from the given file, from the cache if the
+     * file is unchanged, or parsing (and caching) the file otherwise.
+     *
+     * If the file isn't cached, it's parsed from the source each time.
+     *
+     * @param filename the name of the file, or null if not known
+     * @param source   the wrapped context's input stream for the file
+     * @param type     the type of the index
+     * @param parser   parses the index from the file contents
+     * @param <T>      the type of the index
+     * @return the index, or null if the file can't be read
+     */
+    private <T> T index(final String filename,
+                        final Supplier<InputStream> source,
+                        final Class<T> type,
+                        final Function<InputStream, T> parser) {
+        CachedFile cachedFile = cachedFile(filename, source);
+        if (cachedFile == null) {
+            InputStream is = source.get();
+            return is == null ? null : parser.apply(is);
+        }
+        return cachedFile.index(type, parser);
+    }
+
+    /**
+     * Returns the cached contents of the given file if the file is
+     * unchanged, or reads the file from the source and caches it otherwise.
+     *
+     * Returns null without calling the source if the file can't be cached:
+     * its filename isn't known or, when verifying on read, its attributes
+     * can't be read.
+     *
+     * @param filename the name of the file, or null if not known
+     * @param source   the wrapped context's input stream for the file
+     * @return the cached file, or null if the file can't be cached
+     */
+    private CachedFile cachedFile(final String filename,
+                                  final Supplier<InputStream> source) {
+        if (filename == null) {
+            return null;
+        }
+
+        CachedFile cachedFile = files.get(filename);
+        FileStamp stamp = null;
+
+        if (verifyOnRead) {
+            stamp = FileStamp.read(filename);
+            if (stamp == null) {
+                files.remove(filename);
+                return null;
+            }
+            if (cachedFile != null && stamp.equals(cachedFile.stamp)) {
+                return cachedFile;
+            }
+        } else if (cachedFile != null) {
+            return cachedFile;
+        }
+
+        long generation = invalidations.get();
+        InputStream is = source.get();
+        byte[] contents = null;
+        if (is != null) {
+            try {
+                contents = Util.readAllBytes(is);
+            } catch (IOException e) {
+                files.remove(filename);
+                return new CachedFile(stamp, null);
+            }
+        }
+
+        cachedFile = new CachedFile(stamp, contents);
+        files.put(filename, cachedFile);
+        if (invalidations.get() != generation) {
+            // Invalidated while loading: the contents may already be stale.
+            files.remove(filename, cachedFile);
+        }
+        return cachedFile;
+    }
+
+    /**
+     * The contents of a file along with the attributes of the file when the
+     * contents were read.
+     */
+    private static final class CachedFile {
+        /**
+         * The file attributes when the contents were read, or null if not
+         * verifying on read.
+         */
+        private final FileStamp stamp;
+
+        /**
+         * The file contents, or null if the wrapped context didn't provide
+         * the file (for example, a passfile with invalid permissions).
+         */
+        private final byte[] contents;
+
+        /**
+         * The index last parsed from the contents, or null if none has been
+         * parsed yet.
+         */
+        private volatile Object index;
+
+        CachedFile(final FileStamp fileStamp, final byte[] fileContents) {
+            this.stamp = fileStamp;
+            this.contents = fileContents;
+        }
+
+        InputStream newInputStream() {
+            return contents == null
+                    ? null : new ByteArrayInputStream(contents);
+        }
+
+        /**
+         * Returns the index of the given type parsed from the contents,
+         * parsing it if it hasn't been parsed yet. Concurrent callers may
+         * each parse the contents; they get equivalent indexes.
+         *
+         * @param type   the type of the index
+         * @param parser parses the index from the contents
+         * @param <T>    the type of the index
+         * @return the index, or null if there are no contents
+         */
+        <T> T index(final Class<T> type,
+                    final Function<InputStream, T> parser) {
+            if (contents == null) {
+                return null;
+            }
+            Object parsed = index;
+            if (!type.isInstance(parsed)) {
+                parsed = parser.apply(newInputStream());
+                index = parsed;
+            }
+            return type.cast(parsed);
+        }
+    }
+}
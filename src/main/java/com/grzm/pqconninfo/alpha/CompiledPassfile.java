@@ -0,0 +1,360 @@
+package com.grzm.pqconninfo.alpha;
+
+import com.grzm.pqconninfo.alpha.util.StringPool;
+import com.grzm.pqconninfo.alpha.util.Util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A passfile parsed once into an index for repeated password lookups.
+ *
+ * Entries whose host, port, dbname, and user fields are all literal values
+ * are kept in a hash map. Entries with a wildcard field are kept in file
+ * order in a (usually short) list. A lookup finds the exact match, if any,
+ * and then checks only the wildcard entries that precede it in the file, so
+ * it returns the same password as Passfile.getPassword would for the same
+ * file: the password of the first matching line.
+ *
+ * The host, port, dbname, and user fields are pooled while parsing, so a
+ * value repeated across entries is stored once.
+ */
+public final class CompiledPassfile {
+
+    /**
+     * Index of the host field in a split passfile line.
+     */
+    private static final int HOST_FIELD = 0;
+
+    /**
+     * Index of the port field in a split passfile line.
+     */
+    private static final int PORT_FIELD = 1;
+
+    /**
+     * Index of the dbname field in a split passfile line.
+     */
+    private static final int DBNAME_FIELD = 2;
+
+    /**
+     * Index of the user field in a split passfile line.
+     */
+    private static final int USER_FIELD = 3;
+
+    /**
+     * Literal entries by their host, port, dbname, and user, keeping only
+     * the first entry for each.
+     */
+    private final Map<Key, Entry> exactEntries;
+
+    /**
+     * Entries with at least one wildcard field, in file order.
+     */
+    private final Entry[] wildcardEntries;
+
+    /**
+     * Creates a compiled passfile from its entries.
+     *
+     * @param exact    the literal entries
+     * @param wildcard the entries with a wildcard field, in file order
+     */
+    private CompiledPassfile(final Map<Key, Entry> exact,
+                             final Entry[] wildcard) {
+        this.exactEntries = exact;
+        this.wildcardEntries = wildcard;
+    }
+
+    /**
+     * Parses the given passfile input stream into a CompiledPassfile.
+     *
+     * Lines that can never provide a password (malformed lines and entries
+     * without a password field) are dropped. As with Passfile.getPassword,
+     * an error reading the stream ends parsing; the entries read so far are
+     * kept.
+     *
+     * @param pgpass the passfile input stream
+     * @return the compiled passfile
+     */
+    public static CompiledPassfile from(final InputStream pgpass) {
+        Map<Key, Entry> exactEntries = new HashMap<>();
+        List<Entry> wildcardEntries = new ArrayList<>();
+        StringPool pool = new StringPool();
+
+        try (BufferedReader rdr
+                     = new BufferedReader(new InputStreamReader(pgpass))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = rdr.readLine()) != null) {
+                lineNumber++;
+                String[] fields = Passfile.splitPgpassLine(line);
+                if (fields.length != Passfile.MAX_FIELD_COUNT) {
+                    continue;
+                }
+                for (int i = 0; i < Passfile.PASSWORD_FIELD_OFFSET; i++) {
+                    fields[i] = pool.get(fields[i]);
+                }
+                Entry entry = new Entry(lineNumber, fields[HOST_FIELD],
+                        fields[PORT_FIELD], fields[DBNAME_FIELD],
+                        fields[USER_FIELD],
+                        Passfile.unescapePassword(
+                                fields[Passfile.PASSWORD_FIELD_OFFSET]));
+                if (entry.hasWildcard()) {
+                    wildcardEntries.add(entry);
+                } else {
+                    exactEntries.putIfAbsent(new Key(fields[HOST_FIELD],
+                            fields[PORT_FIELD], fields[DBNAME_FIELD],
+                            fields[USER_FIELD]), entry);
+                }
+            }
+        } catch (IOException e) {
+            // do nothing
+        }
+
+        return new CompiledPassfile(exactEntries,
+                wildcardEntries.toArray(new Entry[0]));
+    }
+
+    /**
+     * Returns the number of entries in the index.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return exactEntries.size() + wildcardEntries.length;
+    }
+
+    /**
+     * Finds a password that matches the options in the given conninfo.
+     *
+     * @param conninfo The conninfo to find a password for
+     * @return the password, or null if none found
+     */
+    public String getPassword(final Map<PqConninfoOption, String> conninfo) {
+        return getPassword(
+                conninfo.get(PqConninfoOption.HOST),
+                conninfo.get(PqConninfoOption.PORT),
+                conninfo.get(PqConninfoOption.DBNAME),
+                conninfo.get(PqConninfoOption.USER));
+    }
+
+    /**
+     * Finds the password for each of the given endpoints, in the same way
+     * as Passfile.getPasswords.
+     *
+     * @param endpoints the endpoints to find passwords for
+     * @param dbname    the dbname value to match
+     * @param user      the user value to match
+     * @return the password of each endpoint, in endpoint order; an element
+     * is null if no entry matches that endpoint
+     */
+    public String[] getPasswords(final List<PqEndpoint> endpoints,
+                                 final String dbname,
+                                 final String user) {
+        String[] passwords = new String[endpoints.size()];
+        for (int i = 0; i < passwords.length; i++) {
+            PqEndpoint endpoint = endpoints.get(i);
+            passwords[i] = getPassword(endpoint.getPassfileHost(),
+                    endpoint.getPassfilePort(), dbname, user);
+        }
+        return passwords;
+    }
+
+    /**
+     * Finds a password that matches the given options, in the same way as
+     * Passfile.getPassword.
+     *
+     * @param hostOption the host value to match
+     * @param portOption the port value to match
+     * @param dbname     the dbname value to match
+     * @param user       the user value to match
+     * @return the password value if found, and null otherwise
+     */
+    public String getPassword(final String hostOption,
+                              final String portOption,
+                              final String dbname,
+                              final String user) {
+        if (Util.isNullOrEmpty(dbname) || Util.isNullOrEmpty(user)) {
+            return null;
+        }
+        String host = Passfile.passfileHost(hostOption);
+        String port = Passfile.passfilePort(portOption);
+
+        Entry exact = exactEntries.get(new Key(host, port, dbname, user));
+        int limit = (exact == null) ? Integer.MAX_VALUE : exact.lineNumber;
+
+        for (Entry entry : wildcardEntries) {
+            if (entry.lineNumber > limit) {
+                break;
+            }
+            if (entry.matches(host, port, dbname, user)) {
+                return entry.password;
+            }
+        }
+
+        return (exact == null) ? null : exact.password;
+    }
+
+    /**
+     * The host, port, dbname, and user of a literal passfile entry.
+     */
+    private static final class Key {
+        /**
+         * The host field.
+         */
+        private final String host;
+
+        /**
+         * The port field.
+         */
+        private final String port;
+
+        /**
+         * The dbname field.
+         */
+        private final String dbname;
+
+        /**
+         * The user field.
+         */
+        private final String user;
+
+        /**
+         * The precomputed hash code.
+         */
+        private final int hash;
+
+        /**
+         * Creates a key from the given field values.
+         *
+         * @param hostField   the host field
+         * @param portField   the port field
+         * @param dbnameField the dbname field
+         * @param userField   the user field
+         */
+        Key(final String hostField, final String portField,
+            final String dbnameField, final String userField) {
+            this.host = hostField;
+            this.port = portField;
+            this.dbname = dbnameField;
+            this.user = userField;
+            this.hash = Objects.hash(hostField, portField, dbnameField,
+                    userField);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key that = (Key) o;
+            return hash == that.hash
+                    && host.equals(that.host)
+                    && port.equals(that.port)
+                    && dbname.equals(that.dbname)
+                    && user.equals(that.user);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A passfile entry with its line number.
+     */
+    private static final class Entry {
+        /**
+         * The line number of the entry in the passfile, starting at 1.
+         */
+        private final int lineNumber;
+
+        /**
+         * The host field.
+         */
+        private final String host;
+
+        /**
+         * The port field.
+         */
+        private final String port;
+
+        /**
+         * The dbname field.
+         */
+        private final String dbname;
+
+        /**
+         * The user field.
+         */
+        private final String user;
+
+        /**
+         * The unescaped password.
+         */
+        private final String password;
+
+        /**
+         * Creates an entry from the given line number and field values.
+         *
+         * @param line          the line number
+         * @param hostField     the host field
+         * @param portField     the port field
+         * @param dbnameField   the dbname field
+         * @param userField     the user field
+         * @param passwordField the unescaped password
+         */
+        Entry(final int line, final String hostField, final String portField,
+              final String dbnameField, final String userField,
+              final String passwordField) {
+            this.lineNumber = line;
+            this.host = hostField;
+            this.port = portField;
+            this.dbname = dbnameField;
+            this.user = userField;
+            this.password = passwordField;
+        }
+
+        /**
+         * Returns whether any of the host, port, dbname, and user fields is
+         * a wildcard.
+         *
+         * @return true if the entry has a wildcard field
+         */
+        boolean hasWildcard() {
+            return Passfile.WILDCARD.equals(host)
+                    || Passfile.WILDCARD.equals(port)
+                    || Passfile.WILDCARD.equals(dbname)
+                    || Passfile.WILDCARD.equals(user);
+        }
+
+        /**
+         * Returns whether the entry matches the given option values.
+         *
+         * @param hostOption   the host value to match
+         * @param portOption   the port value to match
+         * @param dbnameOption the dbname value to match
+         * @param userOption   the user value to match
+         * @return true if each field matches its value
+         */
+        boolean matches(final String hostOption, final String portOption,
+                        final String dbnameOption, final String userOption) {
+            return Passfile.optMatchesField(hostOption, host)
+                    && Passfile.optMatchesField(portOption, port)
+                    && Passfile.optMatchesField(dbnameOption, dbname)
+                    && Passfile.optMatchesField(userOption, user);
+        }
+    }
+}
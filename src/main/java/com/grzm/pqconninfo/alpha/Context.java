@@ -108,6 +108,18 @@ public interface Context {
      */
     InputStream getEnvPassfileInputStream(String envPassfile);
 
+    /**
+     * Returns the name of the per-user passfile.
+     *
+     * Returns null by default, for contexts that don't read the passfile
+     * from a named file.
+     *
+     * @return The name of the passfile, or null if not known
+     */
+    default String getUserPassfileFilename() {
+        return null;
+    }
+
     /**
      * Returns the input stream of the contents of the per-user passfile.
      *
@@ -118,6 +130,89 @@ public interface Context {
      */
     InputStream getUserPassfileInputStream();
 
+    /**
+     * Returns the catalog of the service file specified by the
+     * PGSERVICEFILE environment variable.
+     *
+     * By default, the service file is parsed on each call. Contexts that
+     * cache files override this to parse each file once per change.
+     *
+     * @return the catalog, or null if the file can't be read
+     */
+    default ServiceCatalog getEnvServiceCatalog() {
+        InputStream is = getEnvServiceFileInputStream();
+        return is == null ? null
+                : ServiceCatalog.parse(getenv(EnvVars.PGSERVICEFILE), is);
+    }
+
+    /**
+     * Returns the catalog of the per-user service file.
+     *
+     * By default, the service file is parsed on each call.
+     *
+     * @return the catalog, or null if the file can't be read
+     */
+    default ServiceCatalog getUserServiceCatalog() {
+        InputStream is = getUserServiceFileInputStream();
+        return is == null ? null
+                : ServiceCatalog.parse(getUserServiceFilename(), is);
+    }
+
+    /**
+     * Returns the catalog of the service file in the directory specified by
+     * the PGSYSCONFDIR environment variable.
+     *
+     * By default, the service file is parsed on each call.
+     *
+     * @return the catalog, or null if the file can't be read
+     */
+    default ServiceCatalog getEnvSysconfdirServiceCatalog() {
+        InputStream is = getEnvSysconfdirServiceFileInputStream();
+        return is == null ? null
+                : ServiceCatalog.parse(getEnvSysconfdirServiceFilename(), is);
+    }
+
+    /**
+     * Returns the catalog of the service file in the sysconfdir specified
+     * by pg_config.
+     *
+     * By default, the service file is parsed on each call.
+     *
+     * @return the catalog, or null if the file can't be read
+     */
+    default ServiceCatalog getConfigSysconfdirServiceCatalog() {
+        InputStream is = getConfigSysconfdirServiceFileInputStream();
+        return is == null ? null
+                : ServiceCatalog.parse(getConfigSysconfdirServiceFilename(),
+                is);
+    }
+
+    /**
+     * Returns the compiled passfile specified by the PGPASSFILE environment
+     * variable.
+     *
+     * By default, the passfile is compiled on each call.
+     *
+     * @param envPassfile The filename specified by the PGPASSFILE
+     * @return the compiled passfile, or null if it can't be read
+     */
+    default CompiledPassfile getEnvCompiledPassfile(final String envPassfile) {
+        InputStream is = getEnvPassfileInputStream(envPassfile);
+        return is == null ? null : CompiledPassfile.from(is);
+    }
+
+    /**
+     * Returns the compiled per-user passfile.
+     *
+     * By default, the passfile is compiled on each call.
+     *
+     * @return the compiled passfile, or null if it can't be read
+     */
+    default CompiledPassfile getUserCompiledPassfile() {
+        InputStream is = getUserPassfileInputStream();
+        return is == null ? null : CompiledPassfile.from(is);
+    }
+
     /**
      * Returns the system user (corresponding to the "user.home" System
      * property value on the JVM).
@@ -0,0 +1,206 @@
+package com.grzm.pqconninfo.alpha;
+
+import com.grzm.pqconninfo.alpha.impl.SourceFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Watches the service files and passfiles a Context reads and notifies
+ * listeners when they change.
+ *
+ * The parent directory of each file is watched rather than the file itself,
+ * so edits, deletions, and replacements by atomic rename are all seen.
+ * Files whose parent directory doesn't exist when the watcher is created
+ * aren't watched.
+ *
+ * Events are delivered on a single daemon thread, to listeners in the order
+ * they were added. Listeners should return quickly. A CachingConninfoReader
+ * passes changes on to the contexts it has cached, so it doesn't need to be
+ * added after a CachingContext it reads through.
+ */
+public final class ContextFileWatcher implements Closeable {
+
+    /**
+     * The watched files, by parent directory and then by file name within
+     * the directory. Each file name maps to the filenames as provided by the
+     * context (a file may be known by more than one name).
+     */
+    private final Map<Path, Map<Path, List<String>>> watched = new HashMap<>();
+
+    /**
+     * The listeners notified of changes, in the order they were added.
+     */
+    private final List<FileChangeListener> listeners
+            = new CopyOnWriteArrayList<>();
+
+    /**
+     * The watch service the watched directories are registered with.
+     */
+    private final WatchService watchService;
+
+    /**
+     * The thread delivering events to listeners.
+     */
+    private final Thread thread;
+
+    /**
+     * Creates a watcher for the files read by the given context. Call start
+     * to begin delivering events.
+     *
+     * @param context the context whose files to watch
+     * @throws IOException if the watch service can't be created
+     */
+    public ContextFileWatcher(final Context context) throws IOException {
+        this(SourceFingerprint.sourceFilenames(context));
+    }
+
+    /**
+     * Creates a watcher for the given files. Call start to begin delivering
+     * events.
+     *
+     * @param filenames the files to watch
+     * @throws IOException if the watch service can't be created
+     */
+    public ContextFileWatcher(final List<String> filenames)
+            throws IOException {
+        final Logger logger
+                = LoggerFactory.getLogger(ContextFileWatcher.class);
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        for (String filename : filenames) {
+            Path path;
+            try {
+                path = Paths.get(filename).toAbsolutePath().normalize();
+            } catch (InvalidPathException e) {
+                continue;
+            }
+            Path dir = path.getParent();
+            if (dir == null || !Files.isDirectory(dir)) {
+                continue;
+            }
+            if (!watched.containsKey(dir)) {
+                try {
+                    dir.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE);
+                } catch (IOException e) {
+                    logger.warn("Failed to watch directory {}. {} {}",
+                            dir, e.getClass().getName(), e.getMessage());
+                    continue;
+                }
+                watched.put(dir, new HashMap<>());
+            }
+            watched.get(dir)
+                    .computeIfAbsent(path.getFileName(),
+                            k -> new ArrayList<>())
+                    .add(filename);
+        }
+
+        this.thread = new Thread(this::run, "pqconninfo-file-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Adds a listener to be notified when a watched file changes.
+     *
+     * @param listener the listener
+     * @return this watcher
+     */
+    public ContextFileWatcher addListener(final FileChangeListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Starts delivering events to listeners.
+     *
+     * @return this watcher
+     */
+    public ContextFileWatcher start() {
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Returns the watched directories.
+     *
+     * @return the watched directories
+     */
+    public List<Path> getWatchedDirectories() {
+        return Collections.unmodifiableList(new ArrayList<>(watched.keySet()));
+    }
+
+    /**
+     * Stops watching.
+     *
+     * @throws IOException if the watch service can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Map<Path, List<String>> files
+                        = watched.get((Path) key.watchable());
+                if (files != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // Events were lost: assume everything changed.
+                            for (List<String> filenames : files.values()) {
+                                notifyListeners(filenames);
+                            }
+                        } else {
+                            List<String> filenames
+                                    = files.get(event.context());
+                            if (filenames != null) {
+                                notifyListeners(filenames);
+                            }
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed: we're done
+        }
+    }
+
+    private void notifyListeners(final List<String> filenames) {
+        final Logger logger
+                = LoggerFactory.getLogger(ContextFileWatcher.class);
+        for (String filename : filenames) {
+            for (FileChangeListener listener : listeners) {
+                try {
+                    listener.fileChanged(filename);
+                } catch (RuntimeException e) {
+                    logger.warn("File change listener failed for {}. {} {}",
+                            filename, e.getClass().getName(), e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.grzm.pqconninfo.alpha;
+
+/**
+ * Receives notifications that a service file or passfile has changed, so
+ * anything derived from it can be discarded.
+ */
+public interface FileChangeListener {
+    /**
+     * Called when the given file has been modified, created, replaced or
+     * deleted.
+     *
+     * @param filename the name of the file, as provided by the Context
+     */
+    void fileChanged(String filename);
+}
@@ -0,0 +1,24 @@
+package com.grzm.pqconninfo.alpha;
+
+/**
+ * An exception thrown when an error is encountered when parsing a
+ * connection string.
+ */
+public class MalformedConninfoException extends RuntimeException {
+
+    /**
+     * @param message The error message
+     */
+    public MalformedConninfoException(final String message) {
+        super(message);
+    }
+
+    /**
+     * @param message The error message
+     * @param cause   The underlying error
+     */
+    public MalformedConninfoException(final String message,
+                                      final Throwable cause) {
+        super(message, cause);
+    }
+}
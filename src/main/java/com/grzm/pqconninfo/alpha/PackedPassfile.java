@@ -0,0 +1,625 @@
+package com.grzm.pqconninfo.alpha;
+
+import com.grzm.pqconninfo.alpha.util.Util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A passfile parsed once into an index kept outside the Java heap, for
+ * passfiles too large to index as Strings (see CompiledPassfile).
+ *
+ * Each entry is packed into a direct ByteBuffer as its line number followed
+ * by its host, port, dbname, user, and (still escaped) password fields,
+ * each a length and UTF-8 bytes. Entries whose first four fields are all
+ * literal values are indexed by an open-addressed hash table of record
+ * offsets, itself in a direct ByteBuffer; entries with a wildcard field are
+ * listed in file order. Heap use doesn't grow with the size of the file.
+ *
+ * A lookup compares the UTF-8 bytes of the options with the packed fields
+ * in place, and only the password of the matching entry is decoded into a
+ * String. As with CompiledPassfile, the exact match, if any, and the
+ * wildcard entries preceding it are checked, so a lookup returns the same
+ * password as Passfile.getPassword would for the same file: the password
+ * of the first matching line.
+ *
+ * The records are packed into a single buffer, which is trimmed once
+ * parsed only if more than a quarter of it is unused. When the length of
+ * the stream is known up front (InputStream.available, as for a file), the
+ * buffer is sized from it, with room for the per-field lengths, and for
+ * typical passfiles is neither grown nor copied: peak off-heap use is about
+ * one and a half times the file size. Otherwise the buffer starts at 64 KiB
+ * and grows by half as needed, so beyond that peak use stays under two and
+ * a half times the packed size (growing or trimming copies the records into
+ * a new buffer while the old one is still held).
+ *
+ * Lookups don't modify the buffers, so a PackedPassfile can be shared
+ * between threads.
+ *
+ * PackedPassfile isn't used when reading conninfo, which looks up
+ * passwords in a CompiledPassfile (see CachingContext). It's an opt-in
+ * alternative for callers with passfiles large enough that the heap use of
+ * a CompiledPassfile matters.
+ */
+public final class PackedPassfile {
+
+    /**
+     * The initial capacity of the record buffer, in bytes, when the length
+     * of the stream isn't known.
+     */
+    private static final int INITIAL_CAPACITY = 65536;
+
+    /**
+     * The record buffer capacity for a stream of known length is the length
+     * plus the length divided by this, leaving room for the field lengths.
+     */
+    private static final int LENGTH_OVERHEAD_DIVISOR = 2;
+
+    /**
+     * The record buffer grows by its capacity divided by this.
+     */
+    private static final int GROWTH_DIVISOR = 2;
+
+    /**
+     * The record buffer is trimmed if more than its capacity divided by
+     * this is unused.
+     */
+    private static final int TRIM_SLACK_DIVISOR = 4;
+
+    /**
+     * The initial capacity of the exact entry arrays.
+     */
+    private static final int INITIAL_EXACT_CAPACITY = 64;
+
+    /**
+     * The initial capacity of the wildcard entry array.
+     */
+    private static final int INITIAL_WILDCARD_CAPACITY = 16;
+
+    /**
+     * The multiplier of the key hash polynomial.
+     */
+    private static final int HASH_MULTIPLIER = 31;
+
+    /**
+     * A byte that never occurs in UTF-8, hashed between key fields.
+     */
+    private static final int FIELD_SEPARATOR_BYTE = 0xff;
+
+    /**
+     * The shift folding the high bits of a hash into the low bits, which
+     * choose the slot.
+     */
+    private static final int HASH_SPREAD_SHIFT = 16;
+
+    /**
+     * The size of a hash table slot: the hash of the key and the record
+     * offset plus one (zero marks an empty slot).
+     */
+    private static final int SLOT_SIZE = 8;
+
+    /**
+     * The number of fields before the password field.
+     */
+    private static final int KEY_FIELDS = Passfile.PASSWORD_FIELD_OFFSET;
+
+    /**
+     * The packed entries.
+     */
+    private final ByteBuffer records;
+
+    /**
+     * The hash table of literal entries, keeping only the first entry for
+     * each host, port, dbname, and user.
+     */
+    private final ByteBuffer table;
+
+    /**
+     * The mask selecting a slot from a hash, one less than the number of
+     * hash table slots.
+     */
+    private final int mask;
+
+    /**
+     * The record offsets of the entries with a wildcard field, in file
+     * order.
+     */
+    private final ByteBuffer wildcards;
+
+    /**
+     * The number of entries with a wildcard field.
+     */
+    private final int wildcardCount;
+
+    /**
+     * The number of entries in the index.
+     */
+    private final int size;
+
+    /**
+     * Private constructor for PackedPassfile instances.
+     *
+     * @param packed        the packed entries
+     * @param exactTable    the hash table of literal entries
+     * @param exactCount    the number of entries in the hash table
+     * @param wildcardTable the record offsets of the wildcard entries
+     * @param wildcardTotal the number of wildcard entries
+     */
+    private PackedPassfile(final ByteBuffer packed,
+                           final ByteBuffer exactTable,
+                           final int exactCount,
+                           final ByteBuffer wildcardTable,
+                           final int wildcardTotal) {
+        this.records = packed;
+        this.table = exactTable;
+        this.mask = exactTable.capacity() / SLOT_SIZE - 1;
+        this.wildcards = wildcardTable;
+        this.wildcardCount = wildcardTotal;
+        this.size = exactCount + wildcardTotal;
+    }
+
+    /**
+     * Parses the given passfile input stream into a PackedPassfile.
+     *
+     * Lines that can never provide a password (malformed lines and entries
+     * without a password field) are dropped. As with Passfile.getPassword,
+     * an error reading the stream ends parsing; the entries read so far are
+     * kept.
+     *
+     * @param pgpass the passfile input stream
+     * @return the packed passfile
+     */
+    public static PackedPassfile from(final InputStream pgpass) {
+        Builder builder = new Builder(initialCapacity(pgpass));
+
+        try (BufferedReader rdr
+                     = new BufferedReader(new InputStreamReader(pgpass))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = rdr.readLine()) != null) {
+                lineNumber++;
+                String[] fields = Passfile.splitPgpassLine(line);
+                if (fields.length == Passfile.MAX_FIELD_COUNT) {
+                    builder.add(lineNumber, fields);
+                }
+            }
+        } catch (IOException e) {
+            // do nothing
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Returns the initial capacity of the record buffer for the given
+     * stream: its length plus room for the field lengths if the length is
+     * known, and INITIAL_CAPACITY otherwise.
+     *
+     * @param pgpass the passfile input stream
+     * @return the initial capacity, in bytes
+     */
+    private static int initialCapacity(final InputStream pgpass) {
+        long length;
+        try {
+            length = pgpass.available();
+        } catch (IOException e) {
+            length = 0;
+        }
+        if (length <= 0) {
+            return INITIAL_CAPACITY;
+        }
+        return (int) Math.min(length + length / LENGTH_OVERHEAD_DIVISOR,
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of entries in the index.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds a password that matches the options in the given conninfo.
+     *
+     * @param conninfo The conninfo to find a password for
+     * @return the password, or null if none found
+     */
+    public String getPassword(final Map<PqConninfoOption, String> conninfo) {
+        return getPassword(
+                conninfo.get(PqConninfoOption.HOST),
+                conninfo.get(PqConninfoOption.PORT),
+                conninfo.get(PqConninfoOption.DBNAME),
+                conninfo.get(PqConninfoOption.USER));
+    }
+
+    /**
+     * Finds a password that matches the given options, in the same way as
+     * Passfile.getPassword.
+     *
+     * @param hostOption the host value to match
+     * @param portOption the port value to match
+     * @param dbname     the dbname value to match
+     * @param user       the user value to match
+     * @return the password value if found, and null otherwise
+     */
+    public String getPassword(final String hostOption,
+                              final String portOption,
+                              final String dbname,
+                              final String user) {
+        if (Util.isNullOrEmpty(dbname) || Util.isNullOrEmpty(user)) {
+            return null;
+        }
+        byte[][] key = {
+                utf8(Passfile.passfileHost(hostOption)),
+                utf8(Passfile.passfilePort(portOption)),
+                utf8(dbname),
+                utf8(user)};
+
+        int exact = find(key);
+        int limit = (exact < 0) ? Integer.MAX_VALUE : records.getInt(exact);
+
+        for (int i = 0; i < wildcardCount; i++) {
+            int record = wildcards.getInt(i * Integer.BYTES);
+            if (records.getInt(record) > limit) {
+                break;
+            }
+            if (matches(record, key)) {
+                return password(record);
+            }
+        }
+
+        return (exact < 0) ? null : password(exact);
+    }
+
+    /**
+     * Returns the offset of the literal entry with the given key, or -1 if
+     * there's none.
+     *
+     * @param key the UTF-8 host, port, dbname, and user
+     * @return the record offset, or -1
+     */
+    private int find(final byte[][] key) {
+        int hash = hash(key);
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int record = table.getInt(slot * SLOT_SIZE + Integer.BYTES) - 1;
+            if (record < 0) {
+                return -1;
+            }
+            if (table.getInt(slot * SLOT_SIZE) == hash
+                    && keyEquals(records, record, key)) {
+                return record;
+            }
+        }
+    }
+
+    /**
+     * Returns true if each key field of the given record is a wildcard or
+     * equal to the corresponding key field.
+     *
+     * @param record the record offset
+     * @param key    the UTF-8 host, port, dbname, and user
+     * @return true if the record matches
+     */
+    private boolean matches(final int record, final byte[][] key) {
+        int p = record + Integer.BYTES;
+        for (byte[] field : key) {
+            int length = records.getInt(p);
+            p += Integer.BYTES;
+            if (!isWildcard(records, p, length)
+                    && !bytesEqual(records, p, length, field)) {
+                return false;
+            }
+            p += length;
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the password of the given record, removing escaping as
+     * Passfile does.
+     *
+     * @param record the record offset
+     * @return the password
+     */
+    private String password(final int record) {
+        int p = skipKey(records, record);
+        int length = records.getInt(p);
+        p += Integer.BYTES;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = records.get(p + i);
+        }
+        return Passfile.unescapePassword(
+                new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the offset of the password field of the given record.
+     *
+     * @param buf    the record buffer
+     * @param record the record offset
+     * @return the offset of the password field length
+     */
+    private static int skipKey(final ByteBuffer buf, final int record) {
+        int p = record + Integer.BYTES;
+        for (int i = 0; i < KEY_FIELDS; i++) {
+            p += Integer.BYTES + buf.getInt(p);
+        }
+        return p;
+    }
+
+    private static boolean keyEquals(final ByteBuffer buf, final int record,
+                                     final byte[][] key) {
+        int p = record + Integer.BYTES;
+        for (byte[] field : key) {
+            int length = buf.getInt(p);
+            p += Integer.BYTES;
+            if (!bytesEqual(buf, p, length, field)) {
+                return false;
+            }
+            p += length;
+        }
+        return true;
+    }
+
+    private static boolean bytesEqual(final ByteBuffer buf, final int offset,
+                                      final int length, final byte[] bytes) {
+        if (length != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buf.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWildcard(final ByteBuffer buf, final int offset,
+                                      final int length) {
+        return length == 1 && buf.get(offset) == '*';
+    }
+
+    /**
+     * Hashes the given key fields. The field boundaries are mixed in with a
+     * byte that never occurs in UTF-8.
+     *
+     * @param key the UTF-8 key fields
+     * @return the hash
+     */
+    private static int hash(final byte[][] key) {
+        int h = 0;
+        for (byte[] field : key) {
+            for (byte b : field) {
+                h = HASH_MULTIPLIER * h + b;
+            }
+            h = HASH_MULTIPLIER * h + FIELD_SEPARATOR_BYTE;
+        }
+        return h;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> HASH_SPREAD_SHIFT);
+    }
+
+    private static byte[] utf8(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Packs entries into a growing direct buffer, then builds the hash
+     * table.
+     */
+    private static final class Builder {
+        /**
+         * The packed entries so far.
+         */
+        private ByteBuffer records;
+
+        /**
+         * The record offsets of the literal entries, in file order.
+         */
+        private int[] exactOffsets = new int[INITIAL_EXACT_CAPACITY];
+
+        /**
+         * The key hashes of the literal entries, parallel to exactOffsets.
+         */
+        private int[] exactHashes = new int[INITIAL_EXACT_CAPACITY];
+
+        /**
+         * The number of literal entries.
+         */
+        private int exactCount;
+
+        /**
+         * The record offsets of the wildcard entries, in file order.
+         */
+        private int[] wildcardOffsets = new int[INITIAL_WILDCARD_CAPACITY];
+
+        /**
+         * The number of wildcard entries.
+         */
+        private int wildcardCount;
+
+        /**
+         * Creates a builder with a record buffer of the given capacity.
+         *
+         * @param capacity the initial record buffer capacity, in bytes
+         */
+        Builder(final int capacity) {
+            records = ByteBuffer.allocateDirect(capacity);
+        }
+
+        /**
+         * Packs the entry with the given fields.
+         *
+         * @param lineNumber the line number of the entry
+         * @param fields     the host, port, dbname, user, and password
+         */
+        void add(final int lineNumber, final String[] fields) {
+            byte[][] bytes = new byte[fields.length][];
+            int length = Integer.BYTES;
+            boolean wildcard = false;
+            for (int i = 0; i < fields.length; i++) {
+                bytes[i] = utf8(fields[i]);
+                length += Integer.BYTES + bytes[i].length;
+                wildcard |= i < KEY_FIELDS
+                        && Passfile.WILDCARD.equals(fields[i]);
+            }
+
+            ensureCapacity(length);
+            int record = records.position();
+            records.putInt(lineNumber);
+            for (byte[] field : bytes) {
+                records.putInt(field.length);
+                records.put(field);
+            }
+
+            if (wildcard) {
+                if (wildcardCount == wildcardOffsets.length) {
+                    wildcardOffsets = Arrays.copyOf(wildcardOffsets,
+                            wildcardCount * 2);
+                }
+                wildcardOffsets[wildcardCount++] = record;
+            } else {
+                if (exactCount == exactOffsets.length) {
+                    exactOffsets = Arrays.copyOf(exactOffsets,
+                            exactCount * 2);
+                    exactHashes = Arrays.copyOf(exactHashes, exactCount * 2);
+                }
+                exactOffsets[exactCount] = record;
+                exactHashes[exactCount++] = hash(Arrays.copyOf(bytes,
+                        KEY_FIELDS));
+            }
+        }
+
+        /**
+         * Grows the record buffer, by half or to the needed size if that's
+         * larger, unless it has room for the given number of bytes.
+         *
+         * @param length the number of bytes to make room for
+         */
+        private void ensureCapacity(final int length) {
+            if (records.remaining() >= length) {
+                return;
+            }
+            long needed = (long) records.position() + length;
+            if (needed > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(
+                        "passfile too large to pack");
+            }
+            long capacity = Math.max(needed, (long) records.capacity()
+                    + records.capacity() / GROWTH_DIVISOR);
+            ByteBuffer grown = ByteBuffer.allocateDirect(
+                    (int) Math.min(capacity, Integer.MAX_VALUE));
+            // Cast so the Java 8 Buffer.flip is called on Java 8 runtimes.
+            ((Buffer) records).flip();
+            grown.put(records);
+            records = grown;
+        }
+
+        /**
+         * Builds the hash table and returns the packed passfile. The record
+         * buffer is trimmed to size only if enough of it is unused to be
+         * worth the copy; lookups never read past the packed records.
+         *
+         * @return the packed passfile
+         */
+        PackedPassfile build() {
+            ByteBuffer packed = records;
+            ((Buffer) packed).flip();
+            if (packed.capacity() - packed.limit()
+                    > packed.capacity() / TRIM_SLACK_DIVISOR) {
+                packed = ByteBuffer.allocateDirect(records.limit());
+                packed.put(records);
+            }
+
+            // Keep the load factor at or below one half.
+            int slots = 2;
+            while (slots < exactCount * 2) {
+                slots <<= 1;
+            }
+            ByteBuffer table = ByteBuffer.allocateDirect(slots * SLOT_SIZE);
+            int mask = slots - 1;
+            int distinct = 0;
+            for (int i = 0; i < exactCount; i++) {
+                if (insert(table, mask, packed, exactHashes[i],
+                        exactOffsets[i])) {
+                    distinct++;
+                }
+            }
+
+            ByteBuffer wildcards = ByteBuffer.allocateDirect(
+                    Math.max(wildcardCount, 1) * Integer.BYTES);
+            for (int i = 0; i < wildcardCount; i++) {
+                wildcards.putInt(i * Integer.BYTES, wildcardOffsets[i]);
+            }
+
+            return new PackedPassfile(packed, table, distinct, wildcards,
+                    wildcardCount);
+        }
+
+        /**
+         * Inserts the given record into the hash table unless an earlier
+         * record has the same key.
+         *
+         * @param table  the hash table
+         * @param mask   the mask selecting a slot from a hash
+         * @param packed the packed entries
+         * @param hash   the key hash of the record
+         * @param record the record offset
+         * @return true if the record was inserted
+         */
+        private static boolean insert(final ByteBuffer table, final int mask,
+                                      final ByteBuffer packed,
+                                      final int hash, final int record) {
+            for (int slot = spread(hash) & mask; ;
+                 slot = (slot + 1) & mask) {
+                int existing = table.getInt(slot * SLOT_SIZE
+                        + Integer.BYTES) - 1;
+                if (existing < 0) {
+                    table.putInt(slot * SLOT_SIZE, hash);
+                    table.putInt(slot * SLOT_SIZE + Integer.BYTES,
+                            record + 1);
+                    return true;
+                }
+                if (table.getInt(slot * SLOT_SIZE) == hash
+                        && recordKeysEqual(packed, existing, record)) {
+                    return false;
+                }
+            }
+        }
+
+        private static boolean recordKeysEqual(final ByteBuffer buf,
+                                               final int a, final int b) {
+            int p = a + Integer.BYTES;
+            int q = b + Integer.BYTES;
+            for (int i = 0; i < KEY_FIELDS; i++) {
+                int length = buf.getInt(p);
+                if (length != buf.getInt(q)) {
+                    return false;
+                }
+                p += Integer.BYTES;
+                q += Integer.BYTES;
+                for (int j = 0; j < length; j++) {
+                    if (buf.get(p + j) != buf.get(q + j)) {
+                        return false;
+                    }
+                }
+                p += length;
+                q += length;
+            }
+            return true;
+        }
+    }
+}
@@ -6,9 +6,9 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.Arrays;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * Functions for finding a password in a given passfile input stream.
@@ -28,6 +28,12 @@ public final class Passfile {
     // DEFAULT_PGSOCKET_DIR is defined in src/include/pg_config_manual.h
     public static final String DEFAULT_PGSOCKET_DIR = "/tmp";
 
+    /**
+     * Passfile entry field separator: a colon not escaped with a backslash.
+     */
+    private static final Pattern FIELD_SEPARATOR
+            = Pattern.compile("(?<!\\\\):");
+
     /**
      * Privatize utility constructor.
      */
@@ -39,6 +45,13 @@ public final class Passfile {
      * and user values.
      * <p>
      * Returns null if the line is malformed or doesn't match the given values.
+     * <p>
+     * The line is scanned once, comparing each field in place with the
+     * corresponding value, and scanning stops at the first field that doesn't
+     * match. Only the password of a matching line is copied out of the line.
+     * As with splitPgpassLine, a field separator is a colon that isn't
+     * preceded by a backslash. A line matches only if it has exactly five
+     * fields (ignoring trailing empty fields) and a non-empty password field.
      *
      * @param host   host to match
      * @param port   port to match
@@ -53,19 +66,13 @@ public final class Passfile {
             final String dbname,
             final String user,
             final String line) {
-        String[] fields = splitPgpassLine(line);
-        if (fields.length < MIN_FIELD_COUNT
-                || MAX_FIELD_COUNT < fields.length) {
+        int start = matchField(host, line, 0);
+        start = matchField(port, line, start);
+        start = matchField(dbname, line, start);
+        start = matchField(user, line, start);
+        if (start == -1) {
             return null;
         }
-        Iterator<String> optsIter
-                = Arrays.asList(host, port, dbname, user).iterator();
-        Iterator<String> fieldsIter = Arrays.asList(fields).iterator();
-        while (optsIter.hasNext() && fieldsIter.hasNext()) {
-            if (!optMatchesField(optsIter.next(), fieldsIter.next())) {
-                return null;
-            }
-        }
 
         /*
           TODO How do we distinguish between malformed entry, no match, and
@@ -74,11 +81,65 @@ public final class Passfile {
            we weren't able to find one in the file, or we found a matching
            entry and (assuming the pgpass file is correct), we don't need one.
          */
-        if (fields.length == MIN_FIELD_COUNT) {
+        int end = fieldEnd(line, start);
+        if (end == -1) {
+            end = line.length();
+        }
+        if (end == start) {
+            // No password field: only four fields.
             return null;
         }
+        // Any further fields must be empty, or the line has too many fields.
+        for (int i = end; i < line.length(); i++) {
+            if (line.charAt(i) != ':') {
+                return null;
+            }
+        }
 
-        return unescapePassword(fields[PASSWORD_FIELD_OFFSET]);
+        return unescapePassword(line, start, end);
+    }
+
+    /**
+     * Matches the passfile entry field starting at the given index against
+     * the given option value, returning the index of the start of the next
+     * field if it matches, or -1 if it doesn't or there's no next field.
+     * Returns -1 without looking at the line if start is -1, so calls can be
+     * chained field by field.
+     *
+     * @param opt   the option value to match
+     * @param line  the passfile line
+     * @param start the index of the start of the field, or -1
+     * @return the index of the start of the next field, or -1
+     */
+    private static int matchField(final String opt, final String line,
+                                  final int start) {
+        if (start == -1) {
+            return -1;
+        }
+        int end = fieldEnd(line, start);
+        if (end == -1 || !optMatchesField(opt, line, start, end)) {
+            return -1;
+        }
+        return end + 1;
+    }
+
+    /**
+     * Returns the index of the separator ending the passfile entry field
+     * starting at the given index, or -1 if it's the last field of the line.
+     *
+     * @param line  the passfile line
+     * @param start the index of the start of the field
+     * @return the index of the field separator, or -1
+     */
+    private static int fieldEnd(final String line, final int start) {
+        int i = start;
+        while ((i = line.indexOf(':', i)) != -1) {
+            if (i == 0 || line.charAt(i - 1) != '\\') {
+                return i;
+            }
+            i++;
+        }
+        return -1;
     }
 
     /**
@@ -88,7 +149,7 @@ public final class Passfile {
      * @return an array of entry fields
      */
     static String[] splitPgpassLine(final String line) {
-        return line.split("(?<!\\\\):");
+        return FIELD_SEPARATOR.split(line);
     }
 
     /**
@@ -98,7 +159,39 @@ public final class Passfile {
      * @return the unescaped password value
      */
     static String unescapePassword(final String s) {
-        return s.replaceAll("\\\\([\\\\:])", "$1");
+        return unescapePassword(s, 0, s.length());
+    }
+
+    /**
+     * Helper to remove escaping from the passfile password field value
+     * between the given indexes of a passfile line.
+     *
+     * @param line  the passfile line
+     * @param start the index of the start of the field
+     * @param end   the index of the end of the field
+     * @return the unescaped password value
+     */
+    private static String unescapePassword(final String line,
+                                           final int start,
+                                           final int end) {
+        int i = line.indexOf('\\', start);
+        if (i == -1 || i >= end) {
+            return line.substring(start, end);
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        sb.append(line, start, i);
+        while (i < end) {
+            char c = line.charAt(i++);
+            if (c == '\\' && i < end) {
+                char next = line.charAt(i);
+                if (next == '\\' || next == ':') {
+                    c = next;
+                    i++;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
     }
 
     /**
@@ -113,6 +206,28 @@ public final class Passfile {
         return field.equals(WILDCARD) || field.equals(opt);
     }
 
+    /**
+     * Helper to match conninfo option with the passfile entry field between
+     * the given indexes of a passfile line, without copying the field.
+     *
+     * @param opt   the conninfo option
+     * @param line  the passfile line
+     * @param start the index of the start of the field
+     * @param end   the index of the end of the field
+     * @return true if the option matches the field value and false otherwise
+     */
+    private static boolean optMatchesField(final String opt,
+                                           final String line,
+                                           final int start,
+                                           final int end) {
+        int length = end - start;
+        if (length == 1 && line.charAt(start) == '*') {
+            return true;
+        }
+        return opt != null && opt.length() == length
+                && line.regionMatches(start, opt, 0, length);
+    }
+
     /**
      * Searches the given passfile input stream for a password that matches
      * the options in the given conninfo.
@@ -196,9 +311,7 @@ public final class Passfile {
           port) or by passing a flag at server startup, so this might not do
           the right thing either. This should be documented.
          */
-        String host = (Util.isNullOrEmpty(hostOption)
-                || DEFAULT_PGSOCKET_DIR.equals(hostOption))
-                ? DEFAULT_HOST : hostOption;
+        String host = passfileHost(hostOption);
 
         /*
           The default port is a compile time constant. It's generally going to
@@ -207,8 +320,7 @@ public final class Passfile {
           the default here, but is that an assumption worth making? If we *do*
           make this assumption, we'll need to call it out in the docs. TODO
         */
-        String port = (Util.isNullOrEmpty(portOption))
-                ? DEFAULT_PORT_STR : portOption;
+        String port = passfilePort(portOption);
 
         /*
           From https://www.postgresql.org/docs/current/libpq-pgpass.html
@@ -249,4 +361,89 @@ public final class Passfile {
         return password;
     }
 
+    /**
+     * Searches the given passfile input stream for the password of each of
+     * the given endpoints, scanning the stream once.
+     *
+     * Each endpoint gets the password Passfile.getPassword would find for it
+     * (see PqEndpoint.getPassfileHost and getPassfilePort): that of the
+     * first line matching the endpoint. The scan stops once every endpoint
+     * has a password.
+     *
+     * @param endpoints the endpoints to find passwords for
+     * @param dbname    the dbname value to match
+     * @param user      the user value to match
+     * @param pgpass    the passfile input stream to search
+     * @return the password of each endpoint (null if none found), in
+     * endpoint order
+     */
+    public static String[] getPasswords(final List<PqEndpoint> endpoints,
+                                        final String dbname,
+                                        final String user,
+                                        final InputStream pgpass) {
+        int count = endpoints.size();
+        String[] passwords = new String[count];
+
+        if (Util.isNullOrEmpty(dbname) || Util.isNullOrEmpty(user)) {
+            return passwords;
+        }
+
+        String[] hosts = new String[count];
+        String[] ports = new String[count];
+        for (int i = 0; i < count; i++) {
+            hosts[i] = endpoints.get(i).getPassfileHost();
+            ports[i] = endpoints.get(i).getPassfilePort();
+        }
+
+        int unresolved = count;
+
+        try (BufferedReader rdr
+                     = new BufferedReader(new InputStreamReader(pgpass))) {
+            String line;
+            while (unresolved > 0 && (line = rdr.readLine()) != null) {
+                for (int i = 0; i < count; i++) {
+                    if (passwords[i] != null) {
+                        continue;
+                    }
+                    String password = parsePgpassLine(hosts[i], ports[i],
+                            dbname, user, line);
+                    if (password != null) {
+                        passwords[i] = password;
+                        unresolved--;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // do nothing
+        }
+
+        return passwords;
+    }
+
+    /**
+     * Returns the host value to match against passfile entries for the given
+     * host option: localhost if the option is empty or is the default socket
+     * directory.
+     *
+     * @param hostOption the host option
+     * @return the host value to match
+     */
+    static String passfileHost(final String hostOption) {
+        return (Util.isNullOrEmpty(hostOption)
+                || DEFAULT_PGSOCKET_DIR.equals(hostOption))
+                ? DEFAULT_HOST : hostOption;
+    }
+
+    /**
+     * Returns the port value to match against passfile entries for the given
+     * port option: the default port if the option is empty.
+     *
+     * @param portOption the port option
+     * @return the port value to match
+     */
+    static String passfilePort(final String portOption) {
+        return (Util.isNullOrEmpty(portOption))
+                ? DEFAULT_PORT_STR : portOption;
+    }
+
 }
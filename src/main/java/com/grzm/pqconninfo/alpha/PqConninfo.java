@@ -1,7 +1,10 @@
 package com.grzm.pqconninfo.alpha;
 
+import com.grzm.pqconninfo.alpha.util.Interner;
+
+import java.util.Arrays;
 import java.util.EnumMap;
-import java.util.Objects;
+import java.util.Map;
 
 /**
  * Interface defining the getters for conninfo options.
@@ -12,32 +15,92 @@ import java.util.Objects;
  * It's not the responsibility of implementations to validate option values.
  * All properties are strings, even those expected to have numeric or
  * enumerated values.
+ *
+ * Option values are stored in a flat array indexed by the ordinal of the
+ * PqConninfoOption, along with a bitmask of the options that are set, rather
+ * than in an EnumMap.
  */
 public final class PqConninfo {
 
     /**
-     * Backing store for PqConninfoOption values for the PqConninfo instance.
+     * All options, in ordinal order.
+     */
+    private static final PqConninfoOption[] OPTIONS
+            = PqConninfoOption.values();
+
+    /**
+     * Canonical instances, see intern.
+     */
+    private static final Interner<PqConninfo> INTERNER = new Interner<>();
+
+    static {
+        // The presence mask has one bit per option.
+        if (OPTIONS.length > Long.SIZE) {
+            throw new IllegalStateException(
+                    "too many conninfo options for presence mask");
+        }
+    }
+
+    /**
+     * PqConninfoOption values for the PqConninfo instance, indexed by
+     * ordinal.
+     */
+    private final String[] values;
+
+    /**
+     * The options that are set, as bits indexed by ordinal.
+     */
+    private final long mask;
+
+    /**
+     * The hash code, computed once at construction.
      */
-    private final EnumMap<PqConninfoOption, String> opts;
+    private final int hash;
 
     /**
-     * Private constructor for PqConninfo instances.
+     * The redacted string representation, built on first use. Racy
+     * initialization is benign: every thread builds the same string.
+     */
+    private String string;
+
+    /**
+     * Private constructor for PqConninfo instances. The values array is
+     * owned by the instance.
+     *
+     * @param values the option values, indexed by ordinal
+     * @param mask   the options that are set
+     */
+    private PqConninfo(final String[] values, final long mask) {
+        this.values = values;
+        this.mask = mask;
+        this.hash = Arrays.hashCode(values);
+    }
+
+    /**
+     * Create a PqConninfo instance from a PqConninfoOption Map. Null values
+     * are treated as unset.
      *
-     * @param opts an PqConninfoOption EnumMap with which to populate
-     *            the instance
+     * @param map the source PqConninfoOption Map
+     * @return the new PqConninfo instance
      */
-    private PqConninfo(final EnumMap<PqConninfoOption, String> opts) {
-        this.opts = opts.clone();
+    public static PqConninfo from(final Map<PqConninfoOption, String> map) {
+        Builder builder = new Builder();
+        for (Map.Entry<PqConninfoOption, String> e : map.entrySet()) {
+            builder.put(e.getKey(), e.getValue());
+        }
+        return builder.build();
     }
 
     /**
-     * Create a PqConninfo instance from a PqConninfoOption EnumMap.
+     * Create a PqConninfo instance from a PqConninfoOption EnumMap. Kept
+     * for binary compatibility; equivalent to {@link #from(Map)}.
      *
      * @param map the source PqConninfoOption EnumMap
      * @return the new PqConninfo instance
      */
-    public static PqConninfo from(final EnumMap<PqConninfoOption, String> map) {
-        return new PqConninfo(map);
+    public static PqConninfo from(
+            final EnumMap<PqConninfoOption, String> map) {
+        return from((Map<PqConninfoOption, String>) map);
     }
 
     /**
@@ -47,22 +110,65 @@ public final class PqConninfo {
      * @return the value of the PqConninfoOption of the instance
      */
     public String get(final PqConninfoOption opt) {
-        return opts.get(opt);
+        return values[opt.ordinal()];
+    }
+
+    /**
+     * Returns true if the given PqConninfoOption is set.
+     *
+     * @param opt the PqConninfoOption
+     * @return true if the option is set
+     */
+    public boolean contains(final PqConninfoOption opt) {
+        return (mask & bit(opt)) != 0;
+    }
+
+    /**
+     * Returns the canonical instance equal to this one. Equal conninfos
+     * interned share one instance, so they can be compared by reference.
+     * Canonical instances are held weakly and are collected once unused.
+     *
+     * @return the canonical instance
+     */
+    public PqConninfo intern() {
+        return INTERNER.intern(this);
     }
 
+    private static long bit(final PqConninfoOption opt) {
+        return 1L << opt.ordinal();
+    }
+
+    /**
+     * Returns the options as a string, with the passwords redacted, in the
+     * same form as an EnumMap. The string is built once and cached.
+     *
+     * @return the string
+     */
     @Override
     public String toString() {
-        EnumMap<PqConninfoOption, String> redactedOpts = opts.clone();
-
-        if (redactedOpts.containsKey(PqConninfoOption.PASSWORD)) {
-            redactedOpts.put(PqConninfoOption.PASSWORD, "****");
+        String s = string;
+        if (s == null) {
+            s = redactedString();
+            string = s;
         }
+        return s;
+    }
 
-        if (redactedOpts.containsKey(PqConninfoOption.SSLPASSWORD)) {
-            redactedOpts.put(PqConninfoOption.SSLPASSWORD, "****");
+    private String redactedString() {
+        StringBuilder sb = new StringBuilder("PqConninfo{opts={");
+        String separator = "";
+        for (long m = mask; m != 0; m &= m - 1) {
+            PqConninfoOption opt = OPTIONS[Long.numberOfTrailingZeros(m)];
+            sb.append(separator).append(opt).append('=');
+            if (opt == PqConninfoOption.PASSWORD
+                    || opt == PqConninfoOption.SSLPASSWORD) {
+                sb.append("****");
+            } else {
+                sb.append(values[opt.ordinal()]);
+            }
+            separator = ", ";
         }
-
-        return "PqConninfo{" + "opts=" + redactedOpts + '}';
+        return sb.append("}}").toString();
     }
 
     @Override
@@ -74,12 +180,129 @@ public final class PqConninfo {
             return false;
         }
         PqConninfo that = (PqConninfo) o;
-        return opts.equals(that.opts);
+        return hash == that.hash && mask == that.mask
+                && Arrays.equals(values, that.values);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(opts);
+        return hash;
     }
 
+    /**
+     * Collects option values for a PqConninfo instance. The values array is
+     * handed over to the instance when it's built, without a copy, and the
+     * builder can't be used afterwards.
+     */
+    public static final class Builder {
+
+        /**
+         * The option values, indexed by ordinal. Null once built.
+         */
+        private String[] values = new String[OPTIONS.length];
+
+        /**
+         * The options that are set, one bit per ordinal.
+         */
+        private long mask;
+
+        /**
+         * Creates a builder with no options set.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Returns the value of the given option.
+         *
+         * @param opt the option
+         * @return the value, or null if the option isn't set
+         */
+        public String get(final PqConninfoOption opt) {
+            return values()[opt.ordinal()];
+        }
+
+        /**
+         * Returns true if the given option is set.
+         *
+         * @param opt the option
+         * @return true if the option is set
+         */
+        public boolean contains(final PqConninfoOption opt) {
+            values();
+            return (mask & bit(opt)) != 0;
+        }
+
+        /**
+         * Sets the given option. A null value unsets it.
+         *
+         * @param opt   the option
+         * @param value the value, or null
+         * @return this builder
+         */
+        public Builder put(final PqConninfoOption opt, final String value) {
+            String[] vals = values();
+            vals[opt.ordinal()] = value;
+            if (value == null) {
+                mask &= ~bit(opt);
+            } else {
+                mask |= bit(opt);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the given option if it isn't already set. A null value is
+         * ignored.
+         *
+         * @param opt   the option
+         * @param value the value, or null
+         * @return this builder
+         */
+        public Builder putIfAbsent(final PqConninfoOption opt,
+                                   final String value) {
+            if (value != null && !contains(opt)) {
+                put(opt, value);
+            }
+            return this;
+        }
+
+        /**
+         * Sets each of the given options that isn't already set. Null keys
+         * and values are ignored.
+         *
+         * @param opts the options, or null
+         * @return this builder
+         */
+        public Builder putAllIfAbsent(
+                final Map<PqConninfoOption, String> opts) {
+            if (opts != null) {
+                for (Map.Entry<PqConninfoOption, String> e
+                        : opts.entrySet()) {
+                    if (e.getKey() != null) {
+                        putIfAbsent(e.getKey(), e.getValue());
+                    }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Returns a PqConninfo instance with the options set.
+         *
+         * @return the new PqConninfo instance
+         */
+        public PqConninfo build() {
+            PqConninfo conninfo = new PqConninfo(values(), mask);
+            values = null;
+            return conninfo;
+        }
+
+        private String[] values() {
+            if (values == null) {
+                throw new IllegalStateException("PqConninfo already built");
+            }
+            return values;
+        }
+    }
 }
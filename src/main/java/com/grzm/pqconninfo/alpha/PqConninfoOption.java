@@ -1,5 +1,10 @@
 package com.grzm.pqconninfo.alpha;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
 /**
  * Enumerated conninfo options corresponding roughly to
  * _internalPQconninfoOption in interfaces/libpq/fe-connect.c.
@@ -24,6 +29,7 @@ public enum PqConninfoOption {
     KEEPALIVES_IDLE("keepalives_idle"),
     KEEPALIVES_INTERNAL("keepalives_internal"),
     KRBSRVNAME("krbsrvname", "PGKRBSRVNAME"),
+    LOAD_BALANCE_HOSTS("load_balance_hosts", "PGLOADBALANCEHOSTS"),
     OPTIONS("options", "PGOPTIONS"),
     /**
      * PASSFILE isn't used as a connection param.
@@ -84,4 +90,66 @@ public enum PqConninfoOption {
         this.environmentVariable = environmentVariable;
     }
 
+    /**
+     * Options by keyword.
+     */
+    private static final HashMap<String, PqConninfoOption> BY_KEYWORD
+            = new HashMap<>();
+
+    /**
+     * Options by environment variable name.
+     */
+    private static final HashMap<String, PqConninfoOption>
+            BY_ENVIRONMENT_VARIABLE = new HashMap<>();
+
+    /**
+     * The options that have environment variables, in declaration order.
+     */
+    private static final List<PqConninfoOption> ENVIRONMENT_OPTIONS;
+
+    static {
+        PqConninfoOption[] options = values();
+        List<PqConninfoOption> environmentOptions = new ArrayList<>();
+        for (PqConninfoOption opt : options) {
+            BY_KEYWORD.put(opt.keyword, opt);
+            if (opt.environmentVariable != null) {
+                BY_ENVIRONMENT_VARIABLE.put(opt.environmentVariable, opt);
+                environmentOptions.add(opt);
+            }
+        }
+        ENVIRONMENT_OPTIONS = Collections.unmodifiableList(
+                environmentOptions);
+    }
+
+    /**
+     * Returns the option with the given keyword.
+     *
+     * @param keyword the keyword
+     * @return the option, or null if there's no option with the keyword
+     */
+    public static PqConninfoOption forKeyword(final String keyword) {
+        return BY_KEYWORD.get(keyword);
+    }
+
+    /**
+     * Returns the option with the given environment variable.
+     *
+     * @param environmentVariable the environment variable name
+     * @return the option, or null if no option has the environment variable
+     */
+    public static PqConninfoOption forEnvironmentVariable(
+            final String environmentVariable) {
+        return BY_ENVIRONMENT_VARIABLE.get(environmentVariable);
+    }
+
+    /**
+     * Returns the options that have environment variables, in declaration
+     * order.
+     *
+     * @return the unmodifiable list of options with environment variables
+     */
+    public static List<PqConninfoOption> environmentOptions() {
+        return ENVIRONMENT_OPTIONS;
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.grzm.pqconninfo.alpha;
 
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -18,6 +19,44 @@ public interface PqConninfoOptionsReader {
      * @param context the context of the system to read
      * @param props initial props
      * @return the PqConninfo instance to return
+     * @throws MalformedConninfoException if the numbers of hosts, host
+     *                                    addresses, and ports don't match
      */
     PqConninfo read(Context context, Properties props);
+
+    /**
+     * Reads the given system context for libpq conninfo options using the
+     * given initial options.
+     *
+     * Unlike Properties, a Map isn't synchronized, and only the options
+     * actually set are visited. Implementations should override this to
+     * read the options directly; the default converts them to Properties
+     * for read(Context, Properties).
+     *
+     * @param context the context of the system to read
+     * @param opts    initial options; null values are ignored
+     * @return the PqConninfo instance to return
+     * @throws MalformedConninfoException if the numbers of hosts, host
+     *                                    addresses, and ports don't match
+     */
+    default PqConninfo read(final Context context,
+                            final Map<PqConninfoOption, String> opts) {
+        Properties props = new Properties();
+        for (Map.Entry<PqConninfoOption, String> e : opts.entrySet()) {
+            if (e.getValue() != null) {
+                props.setProperty(e.getKey().keyword, e.getValue());
+            }
+        }
+        return read(context, props);
+    }
+
+    /**
+     * Discards anything the reader has cached from the given context, so
+     * the next read of the context reads it afresh. Readers that don't
+     * cache do nothing, which is the default.
+     *
+     * @param context the context whose cached reads to discard
+     */
+    default void invalidate(final Context context) {
+    }
 }
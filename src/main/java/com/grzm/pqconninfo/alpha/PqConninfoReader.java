@@ -1,8 +1,12 @@
 package com.grzm.pqconninfo.alpha;
 
+import com.grzm.pqconninfo.alpha.impl.CachingConninfoReader;
+import com.grzm.pqconninfo.alpha.impl.CoalescingConninfoReader;
 import com.grzm.pqconninfo.alpha.impl.EnumMapConninfoReader;
 
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class to serve as a convenient API for creating PqConninfo
@@ -20,6 +24,8 @@ public final class PqConninfoReader {
      * properties.
      *
      * @return the libpq conninfo values
+     * @throws MalformedConninfoException if the numbers of hosts, host
+     *                                    addresses, and ports don't match
      */
     public static PqConninfo read() {
         return read(SystemContextFactory.create(), new Properties());
@@ -31,6 +37,8 @@ public final class PqConninfoReader {
      *
      * @param props the initial properties
      * @return the libpq conninfo values
+     * @throws MalformedConninfoException if the numbers of hosts, host
+     *                                    addresses, and ports don't match
      */
     public static PqConninfo read(final Properties props) {
         return read(SystemContextFactory.create(), props);
@@ -43,6 +51,8 @@ public final class PqConninfoReader {
      * @param context the system context to read
      * @param props the initial props
      * @return the libpq conninfo values read from the system
+     * @throws MalformedConninfoException if the numbers of hosts, host
+     *                                    addresses, and ports don't match
      */
     public static PqConninfo read(final Context context,
                                   final Properties props) {
@@ -50,4 +60,92 @@ public final class PqConninfoReader {
         return reader.read(context, props);
     }
 
+    /**
+     * Reads libpq conninfo values from the host system with the given initial
+     * options.
+     *
+     * @param opts the initial options
+     * @return the libpq conninfo values
+     * @throws MalformedConninfoException if the numbers of hosts, host
+     *                                    addresses, and ports don't match
+     */
+    public static PqConninfo read(final Map<PqConninfoOption, String> opts) {
+        return read(SystemContextFactory.create(), opts);
+    }
+
+    /**
+     * Reads the given context augmented by the given initial options to
+     * create a new PqConninfo instance.
+     *
+     * @param context the system context to read
+     * @param opts    the initial options
+     * @return the libpq conninfo values read from the system
+     * @throws MalformedConninfoException if the numbers of hosts, host
+     *                                    addresses, and ports don't match
+     */
+    public static PqConninfo read(final Context context,
+                                  final Map<PqConninfoOption, String> opts) {
+        PqConninfoOptionsReader reader = new EnumMapConninfoReader();
+        return reader.read(context, opts);
+    }
+
+    /**
+     * Reads libpq conninfo values from the host system with the initial
+     * options given in the given connection string, in keyword/value
+     * (host=localhost dbname=mydb) or URI (postgresql://localhost/mydb)
+     * form.
+     *
+     * @param conninfo the connection string
+     * @return the libpq conninfo values
+     * @throws MalformedConninfoException if the connection string can't be
+     *                                    parsed, or the numbers of hosts,
+     *                                    host addresses, and ports don't
+     *                                    match
+     */
+    public static PqConninfo read(final String conninfo) {
+        return read(SystemContextFactory.create(), conninfo);
+    }
+
+    /**
+     * Reads the given context augmented by the initial options given in the
+     * given connection string to create a new PqConninfo instance.
+     *
+     * @param context  the system context to read
+     * @param conninfo the connection string
+     * @return the libpq conninfo values read from the system
+     * @throws MalformedConninfoException if the connection string can't be
+     *                                    parsed, or the numbers of hosts,
+     *                                    host addresses, and ports don't
+     *                                    match
+     */
+    public static PqConninfo read(final Context context,
+                                  final String conninfo) {
+        return read(context, ConnectionString.parse(conninfo));
+    }
+
+    /**
+     * Returns a reader that caches the conninfo values it reads for the
+     * given time-to-live, refreshing them in the background before they
+     * expire.
+     *
+     * @param ttl  the time-to-live of cached values
+     * @param unit the time unit of ttl
+     * @return the caching reader
+     */
+    public static CachingConninfoReader cached(final long ttl,
+                                               final TimeUnit unit) {
+        return new CachingConninfoReader(new EnumMapConninfoReader(),
+                ttl, unit);
+    }
+
+    /**
+     * Returns a reader where concurrent reads of the same context with the
+     * same initial properties share a single read of the context.
+     *
+     * @return the coalescing reader
+     */
+    public static PqConninfoOptionsReader coalescing() {
+        return new CoalescingConninfoReader(new EnumMapConninfoReader());
+    }
+
 }
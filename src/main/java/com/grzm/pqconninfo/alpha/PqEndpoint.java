@@ -0,0 +1,219 @@
+package com.grzm.pqconninfo.alpha;
+
+import com.grzm.pqconninfo.alpha.util.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One of the servers a libpq connection may try: an element of the host,
+ * hostaddr, and port lists.
+ *
+ * libpq accepts comma-separated lists of hosts, host addresses, and ports
+ * (see "Specifying Multiple Hosts" in the libpq documentation). The host
+ * and hostaddr lists, when both given, must have the same number of
+ * elements. The port list may have a single element, which applies to all
+ * hosts, or one element per host. Empty elements take the default value.
+ */
+public final class PqEndpoint {
+
+    /**
+     * The host, or null if not given.
+     */
+    private final String host;
+
+    /**
+     * The host address, or null if not given.
+     */
+    private final String hostaddr;
+
+    /**
+     * The port, or null if not given.
+     */
+    private final String port;
+
+    /**
+     * Creates an endpoint.
+     *
+     * @param hostName    the host, or null
+     * @param hostAddress the host address, or null
+     * @param portNumber  the port, or null
+     */
+    public PqEndpoint(final String hostName, final String hostAddress,
+                      final String portNumber) {
+        this.host = hostName;
+        this.hostaddr = hostAddress;
+        this.port = portNumber;
+    }
+
+    /**
+     * Returns the endpoints of the host, hostaddr, and port options of the
+     * given conninfo. There's always at least one endpoint.
+     *
+     * @param conninfo the conninfo
+     * @return the endpoints
+     * @throws MalformedConninfoException if the number of hosts, host
+     *                                    addresses, and ports don't match
+     */
+    public static List<PqEndpoint> from(
+            final Map<PqConninfoOption, String> conninfo) {
+        return from(conninfo.get(PqConninfoOption.HOST),
+                conninfo.get(PqConninfoOption.HOSTADDR),
+                conninfo.get(PqConninfoOption.PORT));
+    }
+
+    /**
+     * Returns the endpoints of the given host, hostaddr, and port option
+     * values. There's always at least one endpoint.
+     *
+     * @param host     the host option value, or null
+     * @param hostaddr the hostaddr option value, or null
+     * @param port     the port option value, or null
+     * @return the endpoints
+     * @throws MalformedConninfoException if the number of hosts, host
+     *                                    addresses, and ports don't match
+     */
+    public static List<PqEndpoint> from(final String host,
+                                        final String hostaddr,
+                                        final String port) {
+        String[] hosts = split(host);
+        String[] hostaddrs = split(hostaddr);
+        String[] ports = split(port);
+
+        // These messages follow libpq's connectOptions2.
+        if (hosts != null && hostaddrs != null
+                && hosts.length != hostaddrs.length) {
+            throw new MalformedConninfoException(String.format(
+                    "could not match %d host names to %d hostaddr values",
+                    hosts.length, hostaddrs.length));
+        }
+
+        int count = hosts != null ? hosts.length
+                : hostaddrs != null ? hostaddrs.length : 1;
+
+        if (ports != null && ports.length != 1 && ports.length != count) {
+            throw new MalformedConninfoException(String.format(
+                    "could not match %d port numbers to %d hosts",
+                    ports.length, count));
+        }
+
+        if (count == 1) {
+            return Collections.singletonList(new PqEndpoint(
+                    element(hosts, 0), element(hostaddrs, 0),
+                    element(ports, 0)));
+        }
+
+        boolean singlePort = ports == null || ports.length == 1;
+        List<PqEndpoint> endpoints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            endpoints.add(new PqEndpoint(element(hosts, i),
+                    element(hostaddrs, i),
+                    element(ports, singlePort ? 0 : i)));
+        }
+        return Collections.unmodifiableList(endpoints);
+    }
+
+    /**
+     * Splits the given option value list on commas, keeping empty
+     * elements.
+     *
+     * @param value the option value
+     * @return the elements, or null if the value is null
+     */
+    private static String[] split(final String value) {
+        return value == null ? null : value.split(",", -1);
+    }
+
+    /**
+     * Returns the i-th element of the given values.
+     *
+     * @param values the values, or null
+     * @param i      the index
+     * @return the element, or null if the values are null
+     */
+    private static String element(final String[] values, final int i) {
+        return values == null ? null : values[i];
+    }
+
+    /**
+     * Returns the host.
+     *
+     * @return the host, or null if not given
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the host address.
+     *
+     * @return the host address, or null if not given
+     */
+    public String getHostaddr() {
+        return hostaddr;
+    }
+
+    /**
+     * Returns the port.
+     *
+     * @return the port, or null if not given
+     */
+    public String getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the host value to match against passfile entries: the host if
+     * given, otherwise the host address if given, otherwise localhost. A
+     * host that's the default socket directory is matched as localhost.
+     *
+     * @return the passfile host
+     */
+    public String getPassfileHost() {
+        if (Util.isNullOrEmpty(host) && !Util.isNullOrEmpty(hostaddr)) {
+            return hostaddr;
+        }
+        return Passfile.passfileHost(host);
+    }
+
+    /**
+     * Returns the port value to match against passfile entries: the port if
+     * given, otherwise the default port.
+     *
+     * @return the passfile port
+     */
+    public String getPassfilePort() {
+        return Passfile.passfilePort(port);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PqEndpoint that = (PqEndpoint) o;
+        return Objects.equals(host, that.host)
+                && Objects.equals(hostaddr, that.hostaddr)
+                && Objects.equals(port, that.port);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hash(host, hostaddr, port);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "PqEndpoint{host=" + host + ", hostaddr=" + hostaddr
+                + ", port=" + port + '}';
+    }
+}
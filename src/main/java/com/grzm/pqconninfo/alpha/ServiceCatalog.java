@@ -0,0 +1,269 @@
+package com.grzm.pqconninfo.alpha;
+
+import com.grzm.pqconninfo.alpha.util.StringPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable index of the services defined in one or more service files.
+ *
+ * A service file is parsed once, in full, into a map from service name to
+ * the options of the service, so looking up a service is a single hash
+ * probe rather than a scan of the file. Lookups return the same values
+ * ServiceFile.getServiceConninfo would for the same file: if a service is
+ * defined more than once, the first section wins.
+ *
+ * Option values are pooled while parsing, so a value repeated across
+ * services (a host name or certificate path, say) is stored once.
+ *
+ * Malformed sections don't stop parsing. Their first error is recorded and
+ * thrown when the service is looked up, as ServiceFile would have thrown
+ * when looking it up.
+ *
+ * Catalogs can be layered with withFallback, following the order libpq
+ * (and EnumMapConninfoReader) looks up services: the user service file
+ * first, then the sysconfdir service file.
+ */
+public final class ServiceCatalog {
+
+    /**
+     * A catalog without any services.
+     */
+    public static final ServiceCatalog EMPTY = new ServiceCatalog(
+            Collections.emptyMap(), Collections.emptyMap());
+
+    /**
+     * The options of each well-formed service, by service name.
+     */
+    private final Map<String, EnumMap<PqConninfoOption, String>> services;
+
+    /**
+     * The first error of each malformed service, by service name.
+     */
+    private final Map<String, MalformedServiceFileException> errors;
+
+    /**
+     * Creates a catalog of the given services.
+     *
+     * @param wellFormed the options of each well-formed service
+     * @param malformed  the first error of each malformed service
+     */
+    private ServiceCatalog(
+            final Map<String, EnumMap<PqConninfoOption, String>> wellFormed,
+            final Map<String, MalformedServiceFileException> malformed) {
+        this.services = wellFormed;
+        this.errors = malformed;
+    }
+
+    /**
+     * Parses the given service file input stream into a catalog.
+     *
+     * @param is the service file input stream
+     * @return the catalog of the services in the file
+     * @throws IOException Error reading the input stream.
+     */
+    public static ServiceCatalog parse(final InputStream is)
+            throws IOException {
+        if (is == null) {
+            return EMPTY;
+        }
+
+        Map<String, EnumMap<PqConninfoOption, String>> services
+                = new HashMap<>();
+        Map<String, MalformedServiceFileException> errors = new HashMap<>();
+        StringPool pool = new StringPool();
+
+        try (BufferedReader rdr = new BufferedReader(
+                new InputStreamReader(is))) {
+
+            String service = null;
+            EnumMap<PqConninfoOption, String> conninfo = null;
+            String line;
+            int lineNumber = 0;
+
+            while ((line = rdr.readLine()) != null) {
+                String trimmedLine = line.trim();
+                lineNumber++;
+
+                if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
+                    continue;
+                }
+
+                if (trimmedLine.startsWith("[")) {
+                    service = ServiceFile.sectionName(trimmedLine);
+                    if (service == null || services.containsKey(service)
+                            || errors.containsKey(service)) {
+                        // Not a section ServiceFile would ever match, or
+                        // shadowed by an earlier section of the same name.
+                        service = null;
+                        conninfo = null;
+                    } else {
+                        conninfo = new EnumMap<>(PqConninfoOption.class);
+                        services.put(service, conninfo);
+                    }
+                } else if (conninfo != null) {
+                    try {
+                        ServiceFile.putOption(conninfo, trimmedLine,
+                                lineNumber, line, pool);
+                    } catch (MalformedServiceFileException e) {
+                        services.remove(service);
+                        errors.put(service, e);
+                        conninfo = null;
+                    }
+                }
+            }
+        }
+
+        if (services.isEmpty() && errors.isEmpty()) {
+            return EMPTY;
+        }
+        return new ServiceCatalog(services, errors);
+    }
+
+    /**
+     * Returns the catalog of the service files the given context reads, in
+     * the order EnumMapConninfoReader looks up services: the PGSERVICEFILE
+     * service file if set, and otherwise the user service file falling back
+     * to the sysconfdir service file.
+     *
+     * Files that can't be read are treated as empty.
+     *
+     * @param context the context
+     * @return the catalog
+     */
+    public static ServiceCatalog forContext(final Context context) {
+        if (context.getenv(EnvVars.PGSERVICEFILE) != null) {
+            return parse(context.getenv(EnvVars.PGSERVICEFILE),
+                    context.getEnvServiceFileInputStream());
+        }
+
+        ServiceCatalog user = parse(context.getUserServiceFilename(),
+                context.getUserServiceFileInputStream());
+        ServiceCatalog sysconfdir;
+        if (context.getenv(EnvVars.PGSYSCONFDIR) != null) {
+            sysconfdir = parse(context.getEnvSysconfdirServiceFilename(),
+                    context.getEnvSysconfdirServiceFileInputStream());
+        } else {
+            sysconfdir = parse(context.getConfigSysconfdirServiceFilename(),
+                    context.getConfigSysconfdirServiceFileInputStream());
+        }
+        return user.withFallback(sysconfdir);
+    }
+
+    /**
+     * Parses the given service file input stream into a catalog, logging
+     * and returning an empty catalog if the stream can't be read.
+     *
+     * @param filename the name of the service file, for logging
+     * @param is       the service file input stream
+     * @return the catalog of the services in the file
+     */
+    static ServiceCatalog parse(final String filename,
+                                final InputStream is) {
+        try {
+            return parse(is);
+        } catch (IOException e) {
+            final Logger logger
+                    = LoggerFactory.getLogger(ServiceCatalog.class);
+            logger.warn("Failed to parse service file {}, {}",
+                    filename, e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Returns a catalog that looks up services in this catalog first, and
+     * in the given catalog for services this catalog doesn't define or
+     * defines in a malformed section.
+     *
+     * A service malformed in both catalogs reports the error of this one.
+     *
+     * @param fallback the catalog to fall back to
+     * @return the layered catalog
+     */
+    public ServiceCatalog withFallback(final ServiceCatalog fallback) {
+        if (fallback.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return fallback;
+        }
+
+        Map<String, EnumMap<PqConninfoOption, String>> mergedServices
+                = new HashMap<>(fallback.services);
+        mergedServices.putAll(services);
+
+        Map<String, MalformedServiceFileException> mergedErrors
+                = new HashMap<>(fallback.errors);
+        mergedErrors.putAll(errors);
+        mergedErrors.keySet().removeAll(mergedServices.keySet());
+
+        return new ServiceCatalog(mergedServices, mergedErrors);
+    }
+
+    /**
+     * Returns the options for the given service, or null if the catalog
+     * doesn't define the service.
+     *
+     * @param service the service to look up
+     * @return PqConninfoOption EnumMap (possibly empty) when the
+     * service is found, or null if it wasn't found.
+     * @throws MalformedServiceFileException if the service is defined in a
+     *                                       malformed section
+     */
+    public EnumMap<PqConninfoOption, String> getServiceConninfo(
+            final String service) throws MalformedServiceFileException {
+        EnumMap<PqConninfoOption, String> conninfo = services.get(service);
+        if (conninfo != null) {
+            return conninfo.clone();
+        }
+        MalformedServiceFileException error = errors.get(service);
+        if (error != null) {
+            throw new MalformedServiceFileException(error.getMessage(),
+                    error.getLineNumber(), error.getLine());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the names of the services in the catalog, including those
+     * defined in malformed sections.
+     *
+     * @return the service names
+     */
+    public Set<String> getServiceNames() {
+        Set<String> names = new LinkedHashSet<>(services.keySet());
+        names.addAll(errors.keySet());
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Returns the first error of each service defined in a malformed
+     * section, by service name.
+     *
+     * @return the errors
+     */
+    public Map<String, MalformedServiceFileException> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Returns true if the catalog defines no services.
+     *
+     * @return true if the catalog is empty
+     */
+    public boolean isEmpty() {
+        return services.isEmpty() && errors.isEmpty();
+    }
+}
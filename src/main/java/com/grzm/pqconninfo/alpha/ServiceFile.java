@@ -1,5 +1,7 @@
 package com.grzm.pqconninfo.alpha;
 
+import com.grzm.pqconninfo.alpha.util.StringPool;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -16,23 +18,6 @@ public final class ServiceFile {
     private ServiceFile() { /* no constructor */ }
 
     /**
-     * Returns the PqConninfoOption corresponding to the given keyword,
-     * or null if not found.
-     *
-     * TODO Extract this as it's not specific to parsing service files
-     *
-     * @param keyword The keyword value to search for
-     * @return The corresponding PqConninfoOption
-     */
-    static PqConninfoOption optionForKeyword(final String keyword) {
-        for (PqConninfoOption opt : PqConninfoOption.values()) {
-            if (opt.keyword.equals(keyword)) {
-                return opt;
-            }
-        }
-        return null;
-    }
-
     /**
      * Searches the provided input stream for options for the given service.
      * If the service is found, an EnumMap with PqConninfoOption keys is
@@ -92,38 +77,14 @@ public final class ServiceFile {
                         // This is the start of the next group.
                         break;
                     }
-                    foundGroup = trimmedLine.equals("[" + service + "]");
+                    foundGroup = service.equals(sectionName(trimmedLine));
                     if (foundGroup) {
                         conninfo = new EnumMap<>(PqConninfoOption.class);
                     }
                 } else {
                     if (foundGroup) {
-                        int i = trimmedLine.indexOf('=');
-                        if (i == -1) {
-                            throw new MalformedServiceFileException(
-                                    "syntax error in service file",
-                                    lineNumber, line);
-                        } else {
-                            String keyword = trimmedLine.substring(0, i);
-
-                            if (PqConninfoOption.SERVICE.keyword.equals(keyword)) {
-                                // libpq doesn't support nested service
-                                throw new MalformedServiceFileException(
-                                        "nested service specifications not supported in service file",
-                                        lineNumber, line);
-                            }
-
-                            PqConninfoOption option = optionForKeyword(keyword);
-                            if (option == null) {
-                                // Unknown keyword.
-                                throw new MalformedServiceFileException(
-                                        "syntax error in service file",
-                                        lineNumber, line);
-                            }
-                            i++;
-                            String val = trimmedLine.substring(i);
-                            conninfo.put(option, val);
-                        }
+                        putOption(conninfo, trimmedLine, lineNumber, line,
+                                null);
                     }
                 }
             }
@@ -131,4 +92,67 @@ public final class ServiceFile {
 
         return conninfo;
     }
+
+    /**
+     * Returns the name of the service of the given section header line
+     * ("[service]"), or null if the line isn't a well-formed header.
+     *
+     * @param trimmedLine the trimmed header line
+     * @return the service name, or null
+     */
+    static String sectionName(final String trimmedLine) {
+        int last = trimmedLine.length() - 1;
+        if (last < 1 || trimmedLine.charAt(0) != '['
+                || trimmedLine.charAt(last) != ']') {
+            return null;
+        }
+        return trimmedLine.substring(1, last);
+    }
+
+    /**
+     * Parses the given service option line ("keyword=value") and puts the
+     * option value in the given conninfo.
+     *
+     * @param conninfo    the conninfo to put the option value in
+     * @param trimmedLine the trimmed option line
+     * @param lineNumber  the line number, for error reporting
+     * @param line        the untrimmed line, for error reporting
+     * @param pool        the pool to take the option value from, or null
+     * @throws MalformedServiceFileException if the line can't be parsed
+     */
+    static void putOption(final EnumMap<PqConninfoOption, String> conninfo,
+                          final String trimmedLine,
+                          final int lineNumber,
+                          final String line,
+                          final StringPool pool)
+            throws MalformedServiceFileException {
+        int i = trimmedLine.indexOf('=');
+        if (i == -1) {
+            throw new MalformedServiceFileException(
+                    "syntax error in service file",
+                    lineNumber, line);
+        }
+
+        String keyword = trimmedLine.substring(0, i);
+
+        if (PqConninfoOption.SERVICE.keyword.equals(keyword)) {
+            // libpq doesn't support nested service
+            throw new MalformedServiceFileException(
+                    "nested service specifications not supported"
+                            + " in service file",
+                    lineNumber, line);
+        }
+
+        PqConninfoOption option = PqConninfoOption.forKeyword(keyword);
+        if (option == null) {
+            // Unknown keyword.
+            throw new MalformedServiceFileException(
+                    "syntax error in service file",
+                    lineNumber, line);
+        }
+        i++;
+        String val = pool == null ? trimmedLine.substring(i)
+                : pool.get(trimmedLine, i, trimmedLine.length());
+        conninfo.put(option, val);
+    }
 }
@@ -9,6 +9,11 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Unix (or rather, non-Windows) specific Context implementation.
@@ -35,6 +40,11 @@ public class UnixContext extends BaseContext {
      */
     private final File userServiceFile;
 
+    /**
+     * Per-user passfile.
+     */
+    private final File userPassfile;
+
     /**
      * Constructor for a Unix system Context, given an EnvVars instance.
      *
@@ -44,6 +54,7 @@ public class UnixContext extends BaseContext {
         this.envVars = envReader;
         this.userHome = System.getProperty("user.home");
         this.userServiceFile = new File(this.userHome, USER_SERVICE_FILE);
+        this.userPassfile = new File(this.userHome, USER_PASSFILE);
     }
 
     /** {@inheritDoc} */
@@ -90,12 +101,18 @@ public class UnixContext extends BaseContext {
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public String getUserPassfileFilename() {
+        return this.userPassfile.toString();
+    }
+
     /** {@inheritDoc} */
     @Override
     public InputStream getUserPassfileInputStream() {
         final Logger logger = LoggerFactory.getLogger(UnixContext.class);
 
-        File passfile = new File(this.userHome, USER_PASSFILE);
+        File passfile = this.userPassfile;
 
         if (!passfile.exists()) {
             return null;
@@ -115,20 +132,161 @@ public class UnixContext extends BaseContext {
         return null;
     }
 
+    /**
+     * How long to wait for pg_config to report the sysconfdir before giving
+     * up on it, in milliseconds.
+     */
+    static final long PG_CONFIG_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * The memoized pg_config sysconfdir lookup. The sysconfdir is compiled
+     * into the PostgreSQL installation, so it's looked up at most once per
+     * process unless the cache is explicitly invalidated.
+     */
+    private static final AtomicReference<FutureTask<String>> CONFIG_SYSCONFDIR
+            = new AtomicReference<>();
+
+    /**
+     * The lookup run by the memoized sysconfdir task. Replaceable so tests
+     * can observe how often the lookup actually runs.
+     */
+    private static volatile Callable<String> configSysconfdirQuery
+            = UnixContext::queryConfigSysconfdir;
+
     /**
      * Returns the value of the sysconfdir provided by the pg_config tool.
      * This is a best-effort attempt to replicate the behavior of libpq,
      * where there's value of sysconfdir compiled in.
      *
+     * The value is looked up once and cached for the life of the process.
+     * Concurrent callers share the same pg_config invocation.
+     *
      * Returns null if there's an error calling pg_config.
      *
      * @return the sysconfdir path, or null
      */
     public static String getConfigSysconfdir() {
+        FutureTask<String> task = configSysconfdirTask();
+        // FutureTask.run is a no-op if the task has already been started.
+        task.run();
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // The lookup failed or was interrupted: don't cache the failure.
+            // An interrupt is restored by the task on the thread that ran it,
+            // which needn't be this one.
+            CONFIG_SYSCONFDIR.compareAndSet(task, null);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Starts looking up the pg_config sysconfdir in a background thread so
+     * that it's available by the time the first service file lookup needs
+     * it. Does nothing if the value has already been looked up.
+     */
+    public static void prefetchConfigSysconfdir() {
+        FutureTask<String> task = configSysconfdirTask();
+        if (task.isDone()) {
+            return;
+        }
+        Thread thread = new Thread(task, "pqconninfo-pg_config");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Discards the cached pg_config sysconfdir, so the next call to
+     * getConfigSysconfdir calls pg_config again.
+     */
+    public static void invalidateConfigSysconfdir() {
+        CONFIG_SYSCONFDIR.set(null);
+    }
+
+    /**
+     * Replaces the lookup used by getConfigSysconfdir and discards any
+     * cached value. Passing null restores the pg_config lookup.
+     *
+     * @param query the sysconfdir lookup, or null for pg_config
+     */
+    static void setConfigSysconfdirQuery(final Callable<String> query) {
+        configSysconfdirQuery = query != null
+                ? query : UnixContext::queryConfigSysconfdir;
+        invalidateConfigSysconfdir();
+    }
+
+    /**
+     * Returns the task for the current pg_config sysconfdir lookup, creating
+     * it if necessary. The task is not started. If the lookup is
+     * interrupted, the task restores the interrupt on the thread running it.
+     *
+     * @return the sysconfdir lookup task
+     */
+    private static FutureTask<String> configSysconfdirTask() {
+        FutureTask<String> task = CONFIG_SYSCONFDIR.get();
+        while (task == null) {
+            final Callable<String> query = configSysconfdirQuery;
+            FutureTask<String> newTask = new FutureTask<>(() -> {
+                try {
+                    return query.call();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            });
+            if (CONFIG_SYSCONFDIR.compareAndSet(null, newTask)) {
+                return newTask;
+            }
+            task = CONFIG_SYSCONFDIR.get();
+        }
+        return task;
+    }
+
+    /**
+     * Calls pg_config to find the sysconfdir, waiting at most
+     * PG_CONFIG_TIMEOUT_MILLIS for it to finish.
+     *
+     * Returns null if there's an error calling pg_config or it times out.
+     *
+     * @return the sysconfdir path, or null
+     * @throws InterruptedException if interrupted while waiting for pg_config
+     */
+    static String queryConfigSysconfdir() throws InterruptedException {
         // TODO Determine whether we need to do this differently on Windows
+        return queryConfigSysconfdir(PG_CONFIG_TIMEOUT_MILLIS,
+                "pg_config", "--sysconfdir");
+    }
+
+    /**
+     * Runs the given command and returns the first line of its output,
+     * waiting at most timeoutMillis for it to finish.
+     *
+     * Returns null if the command can't be run, exits with a non-zero
+     * status, or times out.
+     *
+     * @param timeoutMillis how long to wait for the command, in milliseconds
+     * @param command the command and its arguments
+     * @return the first line of output, or null
+     * @throws InterruptedException if interrupted while waiting for the
+     *                              command
+     */
+    static String queryConfigSysconfdir(final long timeoutMillis,
+                                        final String... command)
+            throws InterruptedException {
+        Process p = null;
         try {
-            Process p = new ProcessBuilder("pg_config", "--sysconfdir").start();
-            p.waitFor();
+            p = new ProcessBuilder(command).start();
+            if (!p.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                final Logger logger
+                        = LoggerFactory.getLogger(UnixContext.class);
+                logger.warn("{} did not finish in {} ms",
+                        String.join(" ", command), timeoutMillis);
+                p.destroyForcibly();
+                return null;
+            }
             if (p.exitValue() == 0) {
                 try (BufferedReader reader = new BufferedReader(
                         new InputStreamReader(p.getInputStream()))) {
@@ -141,8 +299,11 @@ public class UnixContext extends BaseContext {
                 }
             }
             return null;
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             return null;
+        } catch (InterruptedException e) {
+            p.destroyForcibly();
+            throw e;
         }
     }
 
@@ -32,6 +32,11 @@ public class WindowsContext extends BaseContext {
      */
     private final File userServiceFile;
 
+    /**
+     * Per-user passfile.
+     */
+    private final File userPassfile;
+
     /**
      * Constructor for a Windows-system Context, given an EnvVars instance.
      *
@@ -41,6 +46,7 @@ public class WindowsContext extends BaseContext {
         this.appData = System.getenv("APPDATA");
         this.envVars = envReader;
         this.userServiceFile = new File(this.appData, USER_SERVICE_FILE);
+        this.userPassfile = new File(this.appData, USER_PASSFILE);
     }
 
     /** {@inheritDoc} */
@@ -67,11 +73,16 @@ public class WindowsContext extends BaseContext {
         return null;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public String getUserPassfileFilename() {
+        return this.userPassfile.toString();
+    }
+
     /** {@inheritDoc} */
     @Override
     public InputStream getUserPassfileInputStream() {
-        File passfile = new File(this.appData, USER_PASSFILE);
-        return Util.getFileInputStream(passfile);
+        return Util.getFileInputStream(this.userPassfile);
     }
 
 }
@@ -0,0 +1,553 @@
+package com.grzm.pqconninfo.alpha.impl;
+
+import com.grzm.pqconninfo.alpha.Context;
+import com.grzm.pqconninfo.alpha.FileChangeListener;
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.PqConninfoOptionsReader;
+import com.grzm.pqconninfo.alpha.SystemContextFactory;
+import com.grzm.pqconninfo.alpha.util.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A PqConninfoOptionsReader that caches the conninfo read by another reader.
+ *
+ * Results are cached per context and initial properties. A cached result is
+ * returned without any I/O until it's older than the time-to-live. Once a
+ * result is older than the refresh-ahead point, the next read schedules a
+ * background refresh, so entries that are read regularly are refreshed
+ * before they expire and readers don't wait for the context to be read.
+ *
+ * Each entry records a SourceFingerprint of the environment and source
+ * files it was read from. A refresh only reads the context again if the
+ * fingerprint has changed; otherwise the entry is simply renewed.
+ *
+ * Concurrent misses for the same key share a single read of the context.
+ *
+ * The number of entries is bounded. Expired entries are swept whenever an
+ * entry is added, and if the cache is still full, the oldest entries are
+ * evicted.
+ *
+ * By default, cached conninfos are interned (see PqConninfo.intern), so
+ * keys that resolve to equal conninfos share one instance. Interning can be
+ * turned off when constructing the reader.
+ *
+ * Registered with a ContextFileWatcher, entries are discarded as soon as a
+ * file they were read from changes. Cached contexts that are themselves
+ * FileChangeListeners (such as a CachingContext) are notified before the
+ * entries are discarded, so entries aren't reloaded from stale file
+ * contents whatever order the listeners are registered with the watcher.
+ * A read that was in flight when a file changed doesn't leave its result
+ * in the cache.
+ */
+public final class CachingConninfoReader
+        implements PqConninfoOptionsReader, FileChangeListener {
+
+    /**
+     * The default maximum number of cached entries.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    /**
+     * The fraction of the time-to-live, as a divisor, by which entries are
+     * refreshed ahead of expiry by default.
+     */
+    private static final long DEFAULT_REFRESH_AHEAD_DIVISOR = 5;
+
+    /**
+     * The reader providing the values to cache.
+     */
+    private final PqConninfoOptionsReader reader;
+
+    /**
+     * The context used by read(Properties).
+     */
+    private final Context defaultContext;
+
+    /**
+     * Cache entry time-to-live, in nanoseconds.
+     */
+    private final long ttlNanos;
+
+    /**
+     * Age, in nanoseconds, after which an entry is refreshed in the
+     * background.
+     */
+    private final long refreshAfterNanos;
+
+    /**
+     * The executor running background refreshes.
+     */
+    private final Executor executor;
+
+    /**
+     * Source of the current time, in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The maximum number of cached entries.
+     */
+    private final int maxEntries;
+
+    /**
+     * Whether conninfos are interned before they're cached.
+     */
+    private final boolean intern;
+
+    /**
+     * The cached entries.
+     */
+    private final ConcurrentHashMap<ReadKey, Entry> entries
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Count of invalidations, used to detect an invalidation racing with
+     * loading or refreshing an entry.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Cache misses currently being read, shared by concurrent readers of
+     * the same key.
+     */
+    private final SingleFlight<ReadKey, PqConninfo> loads
+            = new SingleFlight<>();
+
+    /**
+     * Count of reads served from the cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Count of reads that had to read the context.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Count of completed background refreshes.
+     */
+    private final LongAdder refreshes = new LongAdder();
+
+    /**
+     * Creates a caching reader that refreshes entries in the background once
+     * they're older than four fifths of the time-to-live.
+     *
+     * @param source the reader providing the values to cache
+     * @param ttl    the time-to-live of cache entries
+     * @param unit   the time unit of ttl
+     */
+    public CachingConninfoReader(final PqConninfoOptionsReader source,
+                                 final long ttl, final TimeUnit unit) {
+        this(source, ttl, ttl / DEFAULT_REFRESH_AHEAD_DIVISOR, unit,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a caching reader holding at most DEFAULT_MAX_ENTRIES entries.
+     *
+     * @param source          the reader providing the values to cache
+     * @param ttl             the time-to-live of cache entries
+     * @param refreshAhead    how long before expiry entries are refreshed
+     * @param unit            the time unit of ttl and refreshAhead
+     * @param refreshExecutor the executor running background refreshes
+     */
+    public CachingConninfoReader(final PqConninfoOptionsReader source,
+                                 final long ttl, final long refreshAhead,
+                                 final TimeUnit unit,
+                                 final Executor refreshExecutor) {
+        this(source, ttl, refreshAhead, unit, refreshExecutor,
+                DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a caching reader that interns the conninfos it caches.
+     *
+     * @param source          the reader providing the values to cache
+     * @param ttl             the time-to-live of cache entries
+     * @param refreshAhead    how long before expiry entries are refreshed
+     * @param unit            the time unit of ttl and refreshAhead
+     * @param refreshExecutor the executor running background refreshes
+     * @param maxSize         the maximum number of cached entries
+     */
+    public CachingConninfoReader(final PqConninfoOptionsReader source,
+                                 final long ttl, final long refreshAhead,
+                                 final TimeUnit unit,
+                                 final Executor refreshExecutor,
+                                 final int maxSize) {
+        this(source, ttl, refreshAhead, unit, refreshExecutor, maxSize, true);
+    }
+
+    /**
+     * Creates a caching reader.
+     *
+     * @param source          the reader providing the values to cache
+     * @param ttl             the time-to-live of cache entries
+     * @param refreshAhead    how long before expiry entries are refreshed
+     * @param unit            the time unit of ttl and refreshAhead
+     * @param refreshExecutor the executor running background refreshes
+     * @param maxSize         the maximum number of cached entries
+     * @param internResults   whether to intern the cached conninfos
+     */
+    public CachingConninfoReader(final PqConninfoOptionsReader source,
+                                 final long ttl, final long refreshAhead,
+                                 final TimeUnit unit,
+                                 final Executor refreshExecutor,
+                                 final int maxSize,
+                                 final boolean internResults) {
+        this(source, ttl, refreshAhead, unit, refreshExecutor, maxSize,
+                internResults, System::nanoTime);
+    }
+
+    /**
+     * Creates a caching reader with the given clock.
+     *
+     * @param source          the reader providing the values to cache
+     * @param ttl             the time-to-live of cache entries
+     * @param refreshAhead    how long before expiry entries are refreshed
+     * @param unit            the time unit of ttl and refreshAhead
+     * @param refreshExecutor the executor running background refreshes
+     * @param maxSize         the maximum number of cached entries
+     * @param internResults   whether to intern the cached conninfos
+     * @param nanoClock       source of the current time, in nanoseconds
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    CachingConninfoReader(final PqConninfoOptionsReader source,
+                          final long ttl, final long refreshAhead,
+                          final TimeUnit unit,
+                          final Executor refreshExecutor,
+                          final int maxSize,
+                          final boolean internResults,
+                          final LongSupplier nanoClock) {
+        if (ttl <= 0 || refreshAhead < 0 || ttl < refreshAhead) {
+            throw new IllegalArgumentException(
+                    "ttl must be positive and no less than refreshAhead");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.reader = source;
+        this.defaultContext = SystemContextFactory.create();
+        this.ttlNanos = unit.toNanos(ttl);
+        this.refreshAfterNanos = unit.toNanos(ttl - refreshAhead);
+        this.executor = refreshExecutor;
+        this.maxEntries = maxSize;
+        this.intern = internResults;
+        this.clock = nanoClock;
+    }
+
+    /**
+     * Reads libpq conninfo values from the host system with the given initial
+     * properties, using the cache.
+     *
+     * @param props the initial properties
+     * @return the libpq conninfo values
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         numbers of hosts, host addresses, and ports don't match
+     */
+    public PqConninfo read(final Properties props) {
+        return read(defaultContext, props);
+    }
+
+    /**
+     * Reads libpq conninfo values from the host system with the given initial
+     * options, using the cache.
+     *
+     * @param opts the initial options
+     * @return the libpq conninfo values
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         numbers of hosts, host addresses, and ports don't match
+     */
+    public PqConninfo read(final Map<PqConninfoOption, String> opts) {
+        return read(defaultContext, opts);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PqConninfo read(final Context context, final Properties props) {
+        return read(new ReadKey(context,
+                EnumMapConninfoReader.optsFrom(props)), props);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PqConninfo read(final Context context,
+                           final Map<PqConninfoOption, String> opts) {
+        return read(new ReadKey(context,
+                EnumMapConninfoReader.optsFrom(opts)), null);
+    }
+
+    /**
+     * Reads the conninfo for the given key, using the cache.
+     *
+     * @param key   the cache key
+     * @param props the initial properties the key was made from, or null
+     *              to read with the options of the key
+     * @return the conninfo
+     */
+    private PqConninfo read(final ReadKey key, final Properties props) {
+        Context context = key.getContext();
+        Entry entry = entries.get(key);
+        long now = clock.getAsLong();
+
+        if (entry != null) {
+            long age = now - entry.loadedAt;
+            if (age < ttlNanos) {
+                hits.increment();
+                if (age >= refreshAfterNanos
+                        && entry.refreshing.compareAndSet(false, true)) {
+                    scheduleRefresh(key, entry);
+                }
+                return entry.conninfo;
+            }
+        }
+
+        misses.increment();
+        return loads.execute(key, () -> {
+            Entry latest = entries.get(key);
+            if (latest != null && latest != entry) {
+                // Another reader loaded the entry after we looked.
+                return latest.conninfo;
+            }
+            long generation = invalidations.get();
+            SourceFingerprint fingerprint = SourceFingerprint.of(context);
+            PqConninfo conninfo = readThrough(key, props);
+            Entry loaded = new Entry(conninfo, fingerprint, now);
+            entries.put(key, loaded);
+            if (invalidations.get() != generation) {
+                // Invalidated while loading: the conninfo may be stale.
+                entries.remove(key, loaded);
+            }
+            sweep(now);
+            return conninfo;
+        });
+    }
+
+    /**
+     * Removes expired entries and, if there are still more than maxEntries
+     * entries, evicts the oldest until there aren't.
+     *
+     * @param now the current time, in nanoseconds
+     */
+    private void sweep(final long now) {
+        entries.values().removeIf(e -> now - e.loadedAt >= ttlNanos);
+        while (entries.size() > maxEntries) {
+            Map.Entry<ReadKey, Entry> oldest = null;
+            for (Map.Entry<ReadKey, Entry> e : entries.entrySet()) {
+                if (oldest == null
+                        || e.getValue().loadedAt < oldest.getValue().loadedAt) {
+                    oldest = e;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            entries.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    /**
+     * Returns the number of reads served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of reads that had to read the context.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of completed background refreshes.
+     *
+     * @return the refresh count
+     */
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * Returns the number of cached entries, including expired entries that
+     * haven't been replaced yet.
+     *
+     * @return the number of cached entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Discards all cached entries.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Discards the cached entries read from the given context, and anything
+     * the underlying reader has cached from it.
+     *
+     * @param context the context whose cached reads to discard
+     */
+    @Override
+    public void invalidate(final Context context) {
+        invalidations.incrementAndGet();
+        entries.keySet().removeIf(key -> key.getContext() == context);
+        reader.invalidate(context);
+    }
+
+    /**
+     * Discards the cached entries read from the given file, first passing
+     * the change on to any cached contexts that are FileChangeListeners.
+     *
+     * @param filename the name of the changed file
+     */
+    @Override
+    public void fileChanged(final String filename) {
+        Set<Context> contexts
+                = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ReadKey key : entries.keySet()) {
+            Context context = key.getContext();
+            if (context instanceof FileChangeListener
+                    && contexts.add(context)) {
+                ((FileChangeListener) context).fileChanged(filename);
+            }
+        }
+        invalidations.incrementAndGet();
+        entries.values().removeIf(
+                e -> e.fingerprint.getFilenames().contains(filename));
+    }
+
+    /**
+     * Reads the conninfo for the given key from the underlying reader,
+     * interning it if the reader interns results. This is the only place
+     * cached conninfos are interned.
+     *
+     * @param key   the cache key
+     * @param props the initial properties the key was made from, or null
+     *              to read with the options of the key
+     * @return the conninfo
+     */
+    private PqConninfo readThrough(final ReadKey key,
+                                   final Properties props) {
+        PqConninfo conninfo = props != null
+                ? reader.read(key.getContext(), props)
+                : reader.read(key.getContext(), key.getOpts());
+        return intern ? conninfo.intern() : conninfo;
+    }
+
+    /**
+     * Submits a background refresh of the given entry. If the executor
+     * rejects it, the entry is left to be refreshed by a later read, or
+     * reloaded once it expires.
+     *
+     * @param key   the cache key
+     * @param entry the entry to refresh
+     */
+    private void scheduleRefresh(final ReadKey key, final Entry entry) {
+        try {
+            executor.execute(() -> refresh(key, entry));
+        } catch (RejectedExecutionException e) {
+            final Logger logger
+                    = LoggerFactory.getLogger(CachingConninfoReader.class);
+            logger.warn("Failed to schedule refresh of cached conninfo. {}",
+                    e.getMessage());
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Replaces the given entry with a renewed one, reading the context again
+     * only if its fingerprint has changed.
+     *
+     * @param key   the cache key
+     * @param entry the entry to refresh
+     */
+    private void refresh(final ReadKey key, final Entry entry) {
+        try {
+            long now = clock.getAsLong();
+            long generation = invalidations.get();
+            SourceFingerprint fingerprint
+                    = SourceFingerprint.of(key.getContext());
+            PqConninfo conninfo = fingerprint.equals(entry.fingerprint)
+                    ? entry.conninfo : readThrough(key, null);
+            Entry refreshed = new Entry(conninfo, fingerprint, now);
+            if (entries.replace(key, entry, refreshed)
+                    && invalidations.get() != generation) {
+                // Invalidated while refreshing: the conninfo may be stale.
+                entries.remove(key, refreshed);
+            }
+            refreshes.increment();
+        } catch (RuntimeException e) {
+            final Logger logger
+                    = LoggerFactory.getLogger(CachingConninfoReader.class);
+            logger.warn("Failed to refresh cached conninfo. {} {}",
+                    e.getClass().getName(), e.getMessage());
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * A cached conninfo along with when and from what it was read.
+     */
+    private static final class Entry {
+        /**
+         * The cached conninfo.
+         */
+        private final PqConninfo conninfo;
+
+        /**
+         * The environment and source files the conninfo was read from.
+         */
+        private final SourceFingerprint fingerprint;
+
+        /**
+         * When the conninfo was read or last renewed, in nanoseconds.
+         */
+        private final long loadedAt;
+
+        /**
+         * Whether a background refresh of this entry is in progress.
+         */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /**
+         * Creates a cache entry.
+         *
+         * @param value    the conninfo
+         * @param sources  the fingerprint of the sources it was read from
+         * @param loadTime when it was read, in nanoseconds
+         */
+        Entry(final PqConninfo value,
+              final SourceFingerprint sources,
+              final long loadTime) {
+            this.conninfo = value;
+            this.fingerprint = sources;
+            this.loadedAt = loadTime;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.grzm.pqconninfo.alpha.impl;
+
+import com.grzm.pqconninfo.alpha.Context;
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.PqConninfoOptionsReader;
+import com.grzm.pqconninfo.alpha.util.SingleFlight;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A PqConninfoOptionsReader that shares in-flight reads: concurrent reads
+ * of the same context with the same initial properties wait for a single
+ * read by the underlying reader rather than each reading the service files
+ * and passfile themselves. Nothing is cached once the read completes.
+ */
+public final class CoalescingConninfoReader
+        implements PqConninfoOptionsReader {
+
+    /**
+     * The reader doing the actual reading.
+     */
+    private final PqConninfoOptionsReader reader;
+
+    /**
+     * The reads currently in flight.
+     */
+    private final SingleFlight<ReadKey, PqConninfo> reads
+            = new SingleFlight<>();
+
+    /**
+     * Creates a reader coalescing concurrent reads of the given reader.
+     *
+     * @param source the reader doing the actual reading
+     */
+    public CoalescingConninfoReader(final PqConninfoOptionsReader source) {
+        this.reader = source;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PqConninfo read(final Context context, final Properties props) {
+        ReadKey key = new ReadKey(context,
+                EnumMapConninfoReader.optsFrom(props));
+        return reads.execute(key, () -> reader.read(context, props));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PqConninfo read(final Context context,
+                           final Map<PqConninfoOption, String> opts) {
+        ReadKey key = new ReadKey(context,
+                EnumMapConninfoReader.optsFrom(opts));
+        return reads.execute(key,
+                () -> reader.read(context, key.getOpts()));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidate(final Context context) {
+        reader.invalidate(context);
+    }
+}
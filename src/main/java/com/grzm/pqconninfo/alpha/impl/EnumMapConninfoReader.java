@@ -1,19 +1,20 @@
 package com.grzm.pqconninfo.alpha.impl;
 
+import com.grzm.pqconninfo.alpha.CompiledPassfile;
 import com.grzm.pqconninfo.alpha.Context;
 import com.grzm.pqconninfo.alpha.EnvVars;
 import com.grzm.pqconninfo.alpha.MalformedServiceFileException;
-import com.grzm.pqconninfo.alpha.Passfile;
 import com.grzm.pqconninfo.alpha.PqConninfo;
 import com.grzm.pqconninfo.alpha.PqConninfoOption;
 import com.grzm.pqconninfo.alpha.PqConninfoOptionsReader;
-import com.grzm.pqconninfo.alpha.ServiceFile;
+import com.grzm.pqconninfo.alpha.PqEndpoint;
+import com.grzm.pqconninfo.alpha.ServiceCatalog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 public final class EnumMapConninfoReader implements PqConninfoOptionsReader {
@@ -25,14 +26,24 @@ public final class EnumMapConninfoReader implements PqConninfoOptionsReader {
     public EnumMapConninfoReader() {
     }
 
+    /** {@inheritDoc} */
     @Override
     public PqConninfo read(final Context context, final Properties props) {
-        EnumMap<PqConninfoOption, String> opts = optsFrom(props);
-        putAllIfAbsent(opts, serviceOpts(context, opts));
-        putAllIfAbsent(opts, environmentVariables(context, opts));
-        putAllIfAbsent(opts, systemUser(context, opts));
-        putAllIfAbsent(opts, passfileInfo(context, opts));
-        return PqConninfo.from(opts);
+        return read(context, optsFrom(props));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PqConninfo read(final Context context,
+                           final Map<PqConninfoOption, String> initialOpts) {
+        PqConninfo.Builder opts
+                = new PqConninfo.Builder().putAllIfAbsent(initialOpts);
+        opts.putAllIfAbsent(serviceOpts(context, opts));
+        opts.putAllIfAbsent(environmentVariables(context, opts));
+        opts.putIfAbsent(PqConninfoOption.USER, systemUser(context, opts));
+        opts.putIfAbsent(PqConninfoOption.PASSWORD,
+                passfileInfo(context, opts));
+        return opts.build();
     }
 
     /**
@@ -47,10 +58,8 @@ public final class EnumMapConninfoReader implements PqConninfoOptionsReader {
         if (b == null || b.isEmpty()) {
             return;
         }
-        for (PqConninfoOption opt : PqConninfoOption.values()) {
-            if (b.containsKey(opt)) {
-                a.putIfAbsent(opt, b.get(opt));
-            }
+        for (Map.Entry<PqConninfoOption, String> e : b.entrySet()) {
+            a.putIfAbsent(e.getKey(), e.getValue());
         }
     }
 
@@ -75,39 +84,62 @@ public final class EnumMapConninfoReader implements PqConninfoOptionsReader {
     }
 
     /**
-     * Returns conninfo option values for the given service as an EnumMap of
-     * PqConninfoOption keys and option values found for the corresponding
-     * service.
+     * Helper function to create a PqConninfoOption EnumMap from a Map of
+     * initial options, visiting only the options that are set. Null values
+     * are dropped.
+     *
+     * @param initialOpts the source of values
+     * @return the populated EnumMap
+     */
+    public static EnumMap<PqConninfoOption, String>
+    optsFrom(final Map<PqConninfoOption, String> initialOpts) {
+        EnumMap<PqConninfoOption, String> opts;
+        if (initialOpts instanceof EnumMap) {
+            opts = ((EnumMap<PqConninfoOption, String>) initialOpts).clone();
+            if (opts.containsValue(null)) {
+                opts.values().removeIf(v -> v == null);
+            }
+            return opts;
+        }
+        opts = new EnumMap<>(PqConninfoOption.class);
+        for (Map.Entry<PqConninfoOption, String> e : initialOpts.entrySet()) {
+            if (e.getKey() != null && e.getValue() != null) {
+                opts.put(e.getKey(), e.getValue());
+            }
+        }
+        return opts;
+    }
+
+    /**
+     * Returns conninfo option values for the given service from the given
+     * service catalog. A malformed service section is logged and treated
+     * as if the service weren't found.
      *
      * @param service  The service we're looking for
-     * @param filename The filename of the service file to parse.
-     * @param is       The InputStream of the service file.
+     * @param filename The filename of the catalog's service file
+     * @param catalog  The catalog, or null if the file can't be read
      * @return An EnumMap of PqConninfoOption keys and String option values
      */
     private static EnumMap<PqConninfoOption, String>
     getServiceConninfo(final String service,
                        final String filename,
-                       final InputStream is) {
-
-        final Logger logger
-                = LoggerFactory.getLogger(EnumMapConninfoReader.class);
-
+                       final ServiceCatalog catalog) {
+        if (catalog == null) {
+            return null;
+        }
         try {
-            return ServiceFile.getServiceConninfo(service, is);
+            return catalog.getServiceConninfo(service);
         } catch (MalformedServiceFileException e) {
+            final Logger logger
+                    = LoggerFactory.getLogger(EnumMapConninfoReader.class);
             logger.warn("{}, file {}, line {}",
                     e.getMessage(), filename, e.getLineNumber());
             return null;
-        } catch (IOException e) {
-            logger.warn("Failed to parse service file {}, {}",
-                    filename, e.getMessage());
-            return null;
         }
     }
 
     static EnumMap<PqConninfoOption, String>
-    serviceOpts(final Context context,
-                final EnumMap<PqConninfoOption, String> opts) {
+    serviceOpts(final Context context, final PqConninfo.Builder opts) {
 
         String service = opts.get(PqConninfoOption.SERVICE);
 
@@ -128,14 +160,12 @@ public final class EnumMapConninfoReader implements PqConninfoOptionsReader {
         String envServiceFile = context.getenv(EnvVars.PGSERVICEFILE);
 
         if (envServiceFile != null) {
-            InputStream is = context.getEnvServiceFileInputStream();
-            if (is != null) {
-                EnumMap<PqConninfoOption, String> envServiceInfo
-                        = getServiceConninfo(service, envServiceFile, is);
+            EnumMap<PqConninfoOption, String> envServiceInfo
+                    = getServiceConninfo(service, envServiceFile,
+                    context.getEnvServiceCatalog());
 
-                if (envServiceInfo != null) {
-                    putAllIfAbsent(info, envServiceInfo);
-                }
+            if (envServiceInfo != null) {
+                putAllIfAbsent(info, envServiceInfo);
             }
         } else {
             /*
@@ -147,20 +177,19 @@ public final class EnumMapConninfoReader implements PqConninfoOptionsReader {
                   or $(pg_config --sysconfidir)/pg_service.conf
              */
             EnumMap<PqConninfoOption, String> serviceConninfo =
-                    getServiceConninfo(
-                            service,
+                    getServiceConninfo(service,
                             context.getUserServiceFilename(),
-                            context.getUserServiceFileInputStream());
+                            context.getUserServiceCatalog());
 
             if (serviceConninfo == null) {
                 if (context.getenv(EnvVars.PGSYSCONFDIR) != null) {
                     serviceConninfo = getServiceConninfo(service,
                             context.getEnvSysconfdirServiceFilename(),
-                            context.getEnvSysconfdirServiceFileInputStream());
+                            context.getEnvSysconfdirServiceCatalog());
                 } else {
                     serviceConninfo = getServiceConninfo(service,
                             context.getConfigSysconfdirServiceFilename(),
-                            context.getConfigSysconfdirServiceFileInputStream());
+                            context.getConfigSysconfdirServiceCatalog());
                 }
             }
 
@@ -174,11 +203,11 @@ public final class EnumMapConninfoReader implements PqConninfoOptionsReader {
 
     static EnumMap<PqConninfoOption, String>
     environmentVariables(final Context context,
-                         final EnumMap<PqConninfoOption, String> opts) {
+                         final PqConninfo.Builder opts) {
         EnumMap<PqConninfoOption, String> envVars
                 = new EnumMap<>(PqConninfoOption.class);
-        for (PqConninfoOption opt : PqConninfoOption.values()) {
-            if (opt.environmentVariable == null || opts.containsKey(opt)) {
+        for (PqConninfoOption opt : PqConninfoOption.environmentOptions()) {
+            if (opts.contains(opt)) {
                 continue;
             }
             String val = context.getenv(opt.environmentVariable);
@@ -191,12 +220,9 @@ public final class EnumMapConninfoReader implements PqConninfoOptionsReader {
     }
 
     /**
-     * Returns an EnumMap with the PqConninfo.USER key set to
-     * the system user iff
-     * * the current opts does not have PqConninfo.USER set; and
-     * * the system user is not null.
-     * <p>
-     * Otherwise, it returns null.
+     * Returns a map with PqConninfoOption.USER set to the system user iff
+     * the current opts does not have PqConninfoOption.USER set. Otherwise,
+     * it returns null.
      *
      * @param context the system context
      * @param opts    the current PqConninfoOption values
@@ -214,53 +240,89 @@ public final class EnumMapConninfoReader implements PqConninfoOptionsReader {
             return null;
         }
 
-        return new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
-            put(PqConninfoOption.USER, user);
-        }};
+        EnumMap<PqConninfoOption, String> userOpts =
+            new EnumMap<>(PqConninfoOption.class);
+        userOpts.put(PqConninfoOption.USER, user);
+        return userOpts;
     }
 
-    static String
-    passfilePassword(final Context context,
-                     final EnumMap<PqConninfoOption, String> opts) {
-        String envPassfile = context.getenv(
-                PqConninfoOption.PASSFILE.environmentVariable);
-
-        InputStream inputStream;
-
-        if (envPassfile != null) {
-            inputStream = context.getEnvPassfileInputStream(envPassfile);
-        } else {
-            inputStream = context.getUserPassfileInputStream();
-        }
-
-        if (inputStream == null) {
+    /**
+     * Returns the system user iff the current opts does not have
+     * PqConninfoOption.USER set. Otherwise, it returns null.
+     *
+     * @param context the system context
+     * @param opts    the current PqConninfoOption values
+     * @return the system user, or null
+     */
+    public static String systemUser(final Context context,
+                                    final PqConninfo.Builder opts) {
+        if (opts.contains(PqConninfoOption.USER)) {
             return null;
         }
+        return context.getSystemUser();
+    }
 
-        return Passfile.getPassword(
+    /**
+     * Returns the passfile password for the given options. With multiple
+     * hosts, the passwords of all of them are looked up in a single scan of
+     * the passfile, and the password of the first host that has one is
+     * returned.
+     *
+     * @param context the system context
+     * @param opts    the current PqConninfoOption values
+     * @return the password, or null
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         numbers of hosts, host addresses, and ports don't match
+     */
+    static String
+    passfilePassword(final Context context, final PqConninfo.Builder opts) {
+        List<PqEndpoint> endpoints = PqEndpoint.from(
                 opts.get(PqConninfoOption.HOST),
-                opts.get(PqConninfoOption.PORT),
-                opts.get(PqConninfoOption.DBNAME),
-                opts.get(PqConninfoOption.USER),
-                inputStream);
-    }
+                opts.get(PqConninfoOption.HOSTADDR),
+                opts.get(PqConninfoOption.PORT));
 
+        String envPassfile = context.getenv(
+                PqConninfoOption.PASSFILE.environmentVariable);
+        String dbname = opts.get(PqConninfoOption.DBNAME);
+        String user = opts.get(PqConninfoOption.USER);
+
+        // A caching context compiles the passfile once per change.
+        CompiledPassfile passfile = envPassfile != null
+                ? context.getEnvCompiledPassfile(envPassfile)
+                : context.getUserCompiledPassfile();
+        return passfile == null ? null : firstPassword(
+                passfile.getPasswords(endpoints, dbname, user));
+    }
 
-    static EnumMap<PqConninfoOption, String>
-    passfileInfo(final Context context,
-                 final EnumMap<PqConninfoOption, String> opts) {
-        if (opts.containsKey(PqConninfoOption.PASSWORD)) {
-            return null;
+    /**
+     * Returns the first non-null password of the given passwords.
+     *
+     * @param passwords the passwords, in endpoint order
+     * @return the first password found, or null
+     */
+    private static String firstPassword(final String[] passwords) {
+        for (String password : passwords) {
+            if (password != null) {
+                return password;
+            }
         }
+        return null;
+    }
 
-        String password = passfilePassword(context, opts);
-        if (password == null) {
+    /**
+     * Returns the passfile password iff the current opts does not have
+     * PqConninfoOption.PASSWORD set. Otherwise, it returns null.
+     *
+     * @param context the system context
+     * @param opts    the current PqConninfoOption values
+     * @return the passfile password, or null
+     */
+    static String passfileInfo(final Context context,
+                               final PqConninfo.Builder opts) {
+        if (opts.contains(PqConninfoOption.PASSWORD)) {
             return null;
         }
-
-        return new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
-            put(PqConninfoOption.PASSWORD, password);
-        }};
+        return passfilePassword(context, opts);
     }
 
 }
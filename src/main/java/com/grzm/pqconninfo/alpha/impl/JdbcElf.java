@@ -2,20 +2,17 @@ package com.grzm.pqconninfo.alpha.impl;
 
 import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParameter;
 import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParameters;
-import com.grzm.pqconninfo.alpha.util.PropertyElf;
+import com.grzm.pqconninfo.alpha.Passfile;
+import com.grzm.pqconninfo.alpha.MalformedConninfoException;
 import com.grzm.pqconninfo.alpha.PqConninfo;
 import com.grzm.pqconninfo.alpha.PqConninfoOption;
 import com.grzm.pqconninfo.alpha.PqSslmode;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
 import java.util.Properties;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /*
@@ -109,6 +106,19 @@ import java.util.stream.Stream;
    :jdbc/replication are enumerated "true" and "database".
    If libpq/replication is falsey, just don't set :jdbc/replication
 
+   :target_session_attrs      :targetServerType String
+   :libpq/target_session_attrs enumerated values:
+      "any", "read-write", "read-only", "primary", "standby",
+      "prefer-standby"
+   :jdbc/targetServerType String enumerated values:
+      "any", "primary", "secondary", "preferSecondary"
+   "read-write" and "primary" map to "primary", "read-only" and "standby"
+   to "secondary", and "prefer-standby" to "preferSecondary"
+
+   :load_balance_hosts        :loadBalanceHosts boolean
+   :libpq/load_balance_hosts enumerated values: "disable", "random"
+   "random" maps to true, and "disable" to false
+
    JBDC connection parameters with no corresponding libpq parameter:
                               :sslfactory String - classname
                               :sslfactoryary String - (deprecated)
@@ -118,7 +128,6 @@ import java.util.stream.Stream;
                               :loggerLevel String
                               :loggerFile String -- path
                               :allowEncodingChanges boolean
-                              :loadBalanceHosts boolean
  */
 
 public final class JdbcElf {
@@ -216,15 +225,122 @@ public final class JdbcElf {
     }
 
     /**
-     * Get the host value from the PqConninfo instance.
+     * Get the host value from the PqConninfo instance. With multiple hosts,
+     * this is the comma-separated list of hosts (see getHosts).
      *
      * @param conninfo the PqConninfo instance
      * @return the host value
      */
     public static String getHost(final PqConninfo conninfo) {
+        List<String> hosts = getHosts(conninfo);
+        if (hosts.size() > 1) {
+            return String.join(",", hosts);
+        }
         return conninfo.get(PqConninfoOption.HOST);
     }
 
+    /**
+     * Get the list of hosts from the PqConninfo instance. libpq host values
+     * may be comma-separated lists of hosts. Empty elements of a list are
+     * replaced with the default host, as the JDBC driver doesn't accept
+     * empty hosts.
+     *
+     * @param conninfo the PqConninfo instance
+     * @return the hosts, or an empty list if host isn't set
+     */
+    public static List<String> getHosts(final PqConninfo conninfo) {
+        String host = conninfo.get(PqConninfoOption.HOST);
+        if (host == null) {
+            return Collections.emptyList();
+        }
+        String[] hosts = host.split(",", -1);
+        if (hosts.length == 1) {
+            return Collections.singletonList(host);
+        }
+        for (int i = 0; i < hosts.length; i++) {
+            if (hosts[i].isEmpty()) {
+                hosts[i] = Passfile.DEFAULT_HOST;
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(hosts));
+    }
+
+    /**
+     * Get the port of each host (see getHosts) from the PqConninfo instance.
+     * libpq port values may be a single port, applying to all hosts, or a
+     * comma-separated list with a port for each host. Ports that aren't
+     * integers are null.
+     *
+     * @param conninfo the PqConninfo instance
+     * @return the ports, or an empty list if port isn't set
+     * @throws MalformedConninfoException if the number of ports doesn't
+     *                                    match the number of hosts
+     */
+    public static List<Integer> getPorts(final PqConninfo conninfo) {
+        return getPorts(conninfo.get(PqConninfoOption.PORT),
+                getHosts(conninfo).size());
+    }
+
+    /**
+     * Returns the port of each host for the given port value and number of
+     * hosts.
+     *
+     * @param port      the port value
+     * @param hostCount the number of hosts
+     * @return the ports, or an empty list if port is null
+     * @throws MalformedConninfoException if the number of ports doesn't
+     *                                    match the number of hosts
+     */
+    static List<Integer> getPorts(final String port, final int hostCount) {
+        if (port == null) {
+            return Collections.emptyList();
+        }
+        String[] ports = port.split(",", -1);
+        int count = Math.max(1, hostCount);
+        if (ports.length != 1 && ports.length != count) {
+            // As PqEndpoint.from, following libpq's connectOptions2.
+            throw new MalformedConninfoException(String.format(
+                    "could not match %d port numbers to %d hosts",
+                    ports.length, count));
+        }
+        Integer[] values = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = parseInteger(ports[ports.length == 1 ? 0 : i]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    private static Integer parseInteger(final String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the value of the port connection property: the port, or with
+     * multiple hosts, the comma-separated list of their ports (using the
+     * default port for any that aren't set).
+     *
+     * @param ports the port of each host
+     * @param port  the port
+     * @return the port property value, or null
+     */
+    static Object portValue(final List<Integer> ports, final Integer port) {
+        if (ports.size() <= 1) {
+            return port;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Integer p : ports) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(p == null ? Passfile.DEFAULT_PORT_STR : p.toString());
+        }
+        return sb.toString();
+    }
+
     /**
      * Get the user value from the PqConninfo instance.
      *
@@ -267,6 +383,7 @@ public final class JdbcElf {
     /**
      * Enumeration of JDBC sslmode connetion parameter values.
      */
+    @SuppressWarnings("checkstyle:JavadocVariable")
     enum Sslmode {
         DISABLE("disable"),
         ALLOW("allow"),
@@ -408,6 +525,7 @@ public final class JdbcElf {
     /**
      * Enumeration of JDBC gssencmode values.
      */
+    @SuppressWarnings("checkstyle:JavadocVariable")
     enum Gssencmode {
         DISABLE("disable"),
         ALLOW("allow"), // no corresponding conninfo gssencmode value
@@ -456,6 +574,7 @@ public final class JdbcElf {
     /**
      * Enumerated JDBC gsslib connection parameter values.
      */
+    @SuppressWarnings("checkstyle:JavadocVariable")
     enum Gsslib {
         AUTO("auto"), // not a recognized PqConninfo gsslib value
         SSPI("sspi"), // not a recognized PqConninfo gsslib value
@@ -510,6 +629,7 @@ public final class JdbcElf {
     /**
      * Enumeration of the JDBC replication connection parameter values.
      */
+    @SuppressWarnings("checkstyle:JavadocVariable")
     enum Replication {
         TRUE("true"),
         DATABASE("database");
@@ -555,6 +675,91 @@ public final class JdbcElf {
         return (replication == null) ? null : replication.keyword;
     }
 
+    /**
+     * Enumeration of the JDBC targetServerType values.
+     */
+    @SuppressWarnings("checkstyle:JavadocVariable")
+    enum TargetServerType {
+        ANY("any"),
+        PRIMARY("primary"),
+        SECONDARY("secondary"),
+        PREFER_SECONDARY("preferSecondary");
+
+        /**
+         * The string representation of the JDBC targetServerType value.
+         */
+        public final String keyword;
+
+        TargetServerType(final String keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    /**
+     * Mapping of PqConninfo target_session_attrs values to JDBC
+     * targetServerType values. libpq's read-write and read-only check
+     * default_transaction_read_only rather than whether the server is in
+     * recovery, but the JDBC driver only distinguishes primaries and
+     * secondaries, so they map to primary and secondary.
+     */
+    static final HashMap<String, TargetServerType>
+            PQ_TARGET_SESSION_ATTRS_MAP
+            = new HashMap<String, TargetServerType>() {{
+        put("any", TargetServerType.ANY);
+        put("read-write", TargetServerType.PRIMARY);
+        put("primary", TargetServerType.PRIMARY);
+        put("read-only", TargetServerType.SECONDARY);
+        put("standby", TargetServerType.SECONDARY);
+        put("prefer-standby", TargetServerType.PREFER_SECONDARY);
+    }};
+
+    /**
+     * Get the targetServerType value from the PqConninfo instance.
+     *
+     * @param conninfo the PqConninfo instance
+     * @return the targetServerType value
+     */
+    public static String getTargetServerType(final PqConninfo conninfo) {
+        String pqTargetSessionAttrs = stringFromConninfoOption(conninfo,
+                PqConninfoOption.TARGET_SESSION_ATTRS);
+
+        if (pqTargetSessionAttrs == null) {
+            return null;
+        }
+
+        TargetServerType targetServerType
+                = PQ_TARGET_SESSION_ATTRS_MAP.get(pqTargetSessionAttrs);
+
+        return (targetServerType == null) ? null : targetServerType.keyword;
+    }
+
+    /**
+     * Mapping of PqConninfo load_balance_hosts values to JDBC
+     * loadBalanceHosts values.
+     */
+    static final HashMap<String, Boolean> PQ_LOAD_BALANCE_HOSTS_MAP
+            = new HashMap<String, Boolean>() {{
+        put("random", Boolean.TRUE);
+        put("disable", Boolean.FALSE);
+    }};
+
+    /**
+     * Get the loadBalanceHosts value from the PqConninfo instance.
+     *
+     * @param conninfo the PqConninfo instance
+     * @return the loadBalanceHosts value
+     */
+    public static Boolean getLoadBalanceHosts(final PqConninfo conninfo) {
+        String pqLoadBalanceHosts = stringFromConninfoOption(conninfo,
+                PqConninfoOption.LOAD_BALANCE_HOSTS);
+
+        if (pqLoadBalanceHosts == null) {
+            return null;
+        }
+
+        return PQ_LOAD_BALANCE_HOSTS_MAP.get(pqLoadBalanceHosts);
+    }
+
     /**
      * The JDBC URL scheme.
      */
@@ -570,18 +775,77 @@ public final class JdbcElf {
      */
     public static String makeUrl(
             final JdbcConnectionParameters params) {
-        if (params.getHost() == null) {
-            if (params.getDbname() == null) {
-                return JDBC_URL_SCHEME + ":/";
+        StringBuilder sb = new StringBuilder();
+        appendUrl(sb, params.getHost(), params.getPort(), params.getDbname(),
+                params.getHosts(), params.getPorts());
+        return sb.toString();
+    }
+
+    /**
+     * Appends the minimal JDBC URL for the given parameter values to the
+     * given builder. With multiple hosts, the URL lists each host with its
+     * port, in the form the JDBC driver uses for connection fail-over:
+     * jdbc:postgresql://host1:port1,host2:port2/dbname
+     *
+     * @param sb     the builder to append to
+     * @param host   the host value
+     * @param port   the port value
+     * @param dbname the dbname value
+     * @param hosts  the hosts
+     * @param ports  the port of each host
+     */
+    static void appendUrl(final StringBuilder sb, final Object host,
+                          final Object port, final Object dbname,
+                          final List<String> hosts,
+                          final List<Integer> ports) {
+        sb.append(JDBC_URL_SCHEME);
+        if (host == null) {
+            if (dbname == null) {
+                sb.append(":/");
             } else {
-                return JDBC_URL_SCHEME + ":" + params.getDbname();
+                sb.append(':').append(dbname);
             }
+            return;
         }
 
-        return JDBC_URL_SCHEME + "://" + params.getHost()
-                + (params.getPort() != null ? ":" + params.getPort() : "")
-                + "/" + (params.getDbname() == null ? "" : params.getDbname());
+        sb.append("://");
+        if (hosts.size() > 1) {
+            boolean withPorts = ports.size() == hosts.size();
+            for (int i = 0; i < hosts.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                appendHost(sb, hosts.get(i));
+                if (withPorts && ports.get(i) != null) {
+                    sb.append(':').append(ports.get(i));
+                }
+            }
+        } else {
+            appendHost(sb, host.toString());
+            if (port != null) {
+                sb.append(':').append(port);
+            }
+        }
+        sb.append('/');
+        if (dbname != null) {
+            sb.append(dbname);
+        }
+    }
 
+    /**
+     * Appends the given host to the given URL builder, enclosing IPv6
+     * addresses in brackets.
+     *
+     * @param sb   the builder to append to
+     * @param host the host
+     */
+    private static void appendHost(final StringBuilder sb,
+                                   final String host) {
+        if (host.indexOf(':') >= 0 && !host.startsWith("[")) {
+            sb.append('[').append(host).append(']');
+        } else {
+            sb.append(host);
+        }
     }
 
     /**
@@ -594,34 +858,210 @@ public final class JdbcElf {
     static String encodeUrlParam(final String name, final String val) {
         if (name != null && val != null) {
             /*
-              The PostgreSQL JDBC Driver uses java.net.UrlEncoder and
-              java.net.UrlDecoder (with UTF-8 as the default) for parsing jdbc
-              url parameters. See org.postgresql.util.URLCoder.decode. Per the
-              comments, this isn't a public interface, so
-              *caveat programmator*.
-
-              The java.net.UrlEncoder.encode method uses `+` for encoding
-              spaces, rather than `%20`. Per spec, percent encoding is required
-              for URL query parameters. This is a long-standing gotcha when
-              using java.net.UrlEncoder.
-
               We're not encoding the name, as the keyword values don't contain
               characters requiring encoding.
              */
-            try {
-                return name + "="
-                        + URLEncoder.encode(val,
-                        StandardCharsets.UTF_8.toString());
-            } catch (UnsupportedEncodingException e) {
-                // This should never throw, as we're always using UTF-8
-                // encoding, referenced from StandardCharsets.
-                return null;
-            }
+            StringBuilder sb = new StringBuilder(name.length() + 1
+                    + val.length());
+            sb.append(name).append('=');
+            appendEncoded(sb, val);
+            return sb.toString();
         }
 
         return null;
     }
 
+    /**
+     * Characters that are appended to query parameter values as is: the
+     * same unreserved characters java.net.URLEncoder leaves alone. Indexed
+     * by ASCII character.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static final boolean[] URL_SAFE = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            URL_SAFE[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            URL_SAFE[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            URL_SAFE[c] = true;
+        }
+        URL_SAFE['.'] = true;
+        URL_SAFE['-'] = true;
+        URL_SAFE['*'] = true;
+        URL_SAFE['_'] = true;
+    }
+
+    /**
+     * Hexadecimal digits of percent-encoded triplets, indexed by value.
+     */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Appends the percent-encoded UTF-8 form of the given query string
+     * parameter value to the given builder.
+     * <p>
+     * The PostgreSQL JDBC Driver decodes jdbc url parameters with
+     * java.net.URLDecoder (with UTF-8 as the default). See
+     * org.postgresql.util.URLCoder.decode. Per the comments, this isn't a
+     * public interface, so *caveat programmator*.
+     * <p>
+     * Unlike java.net.URLEncoder, spaces are encoded as %20 rather than +:
+     * per spec, percent encoding is required for URL query parameters, and
+     * URLDecoder decodes both. As with URLEncoder, an unpaired surrogate is
+     * encoded as a question mark. Values without characters that need
+     * encoding (host names, modes, and the like) are appended without
+     * further allocation. The bit patterns are those of the UTF-8 encoding
+     * (RFC 3629).
+     *
+     * @param sb  the builder to append to
+     * @param val the query string parameter value
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    static void appendEncoded(final StringBuilder sb, final String val) {
+        int length = val.length();
+        int i = 0;
+        while (i < length) {
+            char c = val.charAt(i);
+            if (c >= URL_SAFE.length || !URL_SAFE[c]) {
+                break;
+            }
+            i++;
+        }
+        sb.append(val, 0, i);
+
+        while (i < length) {
+            char c = val.charAt(i++);
+            if (c < URL_SAFE.length) {
+                if (URL_SAFE[c]) {
+                    sb.append(c);
+                } else {
+                    appendEscaped(sb, c);
+                }
+            } else if (c < 0x800) {
+                appendEscaped(sb, 0xC0 | (c >> 6));
+                appendEscaped(sb, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i < length
+                    && Character.isLowSurrogate(val.charAt(i))) {
+                int cp = Character.toCodePoint(c, val.charAt(i++));
+                appendEscaped(sb, 0xF0 | (cp >> 18));
+                appendEscaped(sb, 0x80 | ((cp >> 12) & 0x3F));
+                appendEscaped(sb, 0x80 | ((cp >> 6) & 0x3F));
+                appendEscaped(sb, 0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates are encoded as '?', as the UTF-8
+                // encoder does.
+                appendEscaped(sb, '?');
+            } else {
+                appendEscaped(sb, 0xE0 | (c >> 12));
+                appendEscaped(sb, 0x80 | ((c >> 6) & 0x3F));
+                appendEscaped(sb, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Appends the given byte as a percent-encoded triplet.
+     *
+     * @param sb the builder to append to
+     * @param b  the byte to append
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static void appendEscaped(final StringBuilder sb, final int b) {
+        sb.append('%')
+                .append(HEX_DIGITS[(b >> 4) & 0xF])
+                .append(HEX_DIGITS[b & 0xF]);
+    }
+
+    /**
+     * Returns the value of the given parameter of the given connection
+     * parameters, or null if it isn't set.
+     *
+     * There's no ssl value: ssl isn't set from conninfo options.
+     *
+     * @param params the connection parameters
+     * @param param  the parameter to get
+     * @return the parameter value, or null
+     */
+    static Object getParameter(final JdbcConnectionParameters params,
+                               final JdbcConnectionParameter param) {
+        switch (param) {
+            case HOST:
+                return params.getHost();
+            case PORT:
+                return portValue(params.getPorts(), params.getPort());
+            case DBNAME:
+                return params.getDbname();
+            case USER:
+                return params.getUser();
+            case PASSWORD:
+                return params.getPassword();
+            case OPTIONS:
+                return params.getOptions();
+            case SSLMODE:
+                return params.getSslmode();
+            case SSLCERT:
+                return params.getSslcert();
+            case SSLKEY:
+                return params.getSslkey();
+            case SSLROOTCERT:
+                return params.getSslrootcert();
+            case CONNECT_TIMEOUT:
+                return params.getConnectTimeout();
+            case KERBEROS_SERVER_NAME:
+                return params.getKerberosServerName();
+            case APPLICATION_NAME:
+                return params.getApplicationName();
+            case TCP_KEEP_ALIVE:
+                return params.getTcpKeepAlive();
+            case GSSENCMODE:
+                return params.getGssencmode();
+            case GSSLIB:
+                return params.getGsslib();
+            case SSLPASSWORD:
+                return params.getSslpassword();
+            case REPLICATION:
+                return params.getReplication();
+            case TARGET_SERVER_TYPE:
+                return params.getTargetServerType();
+            case LOAD_BALANCE_HOSTS:
+                return params.getLoadBalanceHosts();
+            case SSL:
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * All connection parameters.
+     */
+    private static final JdbcConnectionParameter[] ALL_PARAMETERS
+            = JdbcConnectionParameter.values();
+
+    /**
+     * The query parameters, in declaration order.
+     */
+    private static final JdbcConnectionParameter[] QUERY_PARAMETERS
+            = Arrays.stream(ALL_PARAMETERS)
+            .filter(p -> p.isQueryParameter)
+            .toArray(JdbcConnectionParameter[]::new);
+
+    /**
+     * The query parameters in query string order: user and password first,
+     * followed by the others in declaration order.
+     */
+    private static final JdbcConnectionParameter[] QUERY_STRING_PARAMETERS
+            = Stream.concat(
+                    Stream.of(JdbcConnectionParameter.USER,
+                            JdbcConnectionParameter.PASSWORD),
+                    Arrays.stream(QUERY_PARAMETERS)
+                            .filter(p -> p != JdbcConnectionParameter.USER
+                                    && p != JdbcConnectionParameter.PASSWORD))
+            .toArray(JdbcConnectionParameter[]::new);
+
     /**
      * Returns a JDBC URL query string for the given connection parameters.
      *
@@ -630,34 +1070,25 @@ public final class JdbcElf {
      */
     static String makeQueryParameterString(
             final JdbcConnectionParameters params) {
-        Stream<JdbcConnectionParameter> authParams
-                = Stream.of(JdbcConnectionParameter.USER,
-                JdbcConnectionParameter.PASSWORD);
-
-        Stream<JdbcConnectionParameter> otherParams
-                = Arrays.stream(JdbcConnectionParameter.values())
-                .filter(p -> p != JdbcConnectionParameter.PASSWORD
-                        && p != JdbcConnectionParameter.USER)
-                .filter(p -> p.isQueryParameter)
-                .sorted();
-
-        List<String> ps = Stream.concat(authParams, otherParams)
-                .map(p -> {
-                    String name = p.keyword;
-                    Object val = PropertyElf.getProperty(name, params);
-                    if (val == null) {
-                        return null;
-                    }
-                    return encodeUrlParam(name, val.toString());
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-        if (ps.isEmpty()) {
-            return null;
+        StringBuilder sb = null;
+        for (JdbcConnectionParameter p : QUERY_STRING_PARAMETERS) {
+            Object val = getParameter(params, p);
+            if (val == null) {
+                continue;
+            }
+            String param = encodeUrlParam(p.keyword, val.toString());
+            if (param == null) {
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder();
+            } else {
+                sb.append('&');
+            }
+            sb.append(param);
         }
 
-        return String.join("&", ps);
+        return (sb == null) ? null : sb.toString();
     }
 
     /**
@@ -683,17 +1114,7 @@ public final class JdbcElf {
      */
     public static Properties makeInfo(
             final JdbcConnectionParameters params) {
-        Properties props = new Properties();
-        Arrays.stream(JdbcConnectionParameter.values())
-                .filter(p -> p.isQueryParameter)
-                .forEach(p -> {
-                    String propName = p.keyword;
-                    Object val = PropertyElf.getProperty(propName, params);
-                    if (val != null) {
-                        props.setProperty(propName, val.toString());
-                    }
-                });
-        return props;
+        return makeProperties(params, QUERY_PARAMETERS);
     }
 
     /**
@@ -704,15 +1125,27 @@ public final class JdbcElf {
      */
     public static Properties makeProperties(
             final JdbcConnectionParameters params) {
+        return makeProperties(params, ALL_PARAMETERS);
+    }
+
+    /**
+     * Returns the given parameters of the given JdbcConnectionParameters as
+     * Properties.
+     *
+     * @param params     the JdbcConnectionParameters instance
+     * @param parameters the parameters to include
+     * @return the connection parameter properties
+     */
+    private static Properties makeProperties(
+            final JdbcConnectionParameters params,
+            final JdbcConnectionParameter[] parameters) {
         Properties props = new Properties();
-        Arrays.stream(JdbcConnectionParameter.values())
-                .forEach(p -> {
-                    String propName = p.keyword;
-                    Object val = PropertyElf.getProperty(propName, params);
-                    if (val != null) {
-                        props.setProperty(propName, val.toString());
-                    }
-                });
+        for (JdbcConnectionParameter p : parameters) {
+            Object val = getParameter(params, p);
+            if (val != null) {
+                props.setProperty(p.keyword, val.toString());
+            }
+        }
         return props;
     }
 }
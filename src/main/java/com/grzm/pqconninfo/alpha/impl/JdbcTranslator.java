@@ -0,0 +1,311 @@
+package com.grzm.pqconninfo.alpha.impl;
+
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParameter;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Translates a PqConninfo into JDBC connection parameters in a single pass.
+ *
+ * The JDBC connection parameters are visited once, in declaration order.
+ * Each parameter's value is read from the conninfo and converted, and the
+ * value is then added to the connection Properties, the info Properties,
+ * and the URL query string as it's produced. The URL and the query string
+ * share one StringBuilder. The URL parameters (host, port, and dbname)
+ * come first in declaration order, so the URL is complete before the first
+ * query parameter is appended.
+ *
+ * The values are the same as the JdbcElf getters produce, and the URLs and
+ * Properties the same as JdbcElf.makeUrl, makeUrlWithQueryString,
+ * makeInfo, and makeProperties.
+ */
+public final class JdbcTranslator {
+
+    /**
+     * All connection parameters, in declaration order.
+     */
+    private static final JdbcConnectionParameter[] PARAMETERS
+            = JdbcConnectionParameter.values();
+
+    /**
+     * Initial capacity of the URL builder, enough for the URL and query
+     * string of typical parameters without resizing.
+     */
+    private static final int URL_CAPACITY = 128;
+
+    /**
+     * Privatize utility constructor.
+     */
+    private JdbcTranslator() {
+    }
+
+    /**
+     * Translates the given conninfo.
+     *
+     * @param conninfo the conninfo to translate
+     * @return the translation
+     */
+    public static Translation translate(final PqConninfo conninfo) {
+        List<String> hosts = JdbcElf.getHosts(conninfo);
+        List<Integer> ports = JdbcElf.getPorts(
+                conninfo.get(PqConninfoOption.PORT), hosts.size());
+        Object[] values = new Object[PARAMETERS.length];
+        Properties info = new Properties();
+        Properties properties = new Properties();
+        StringBuilder sb = new StringBuilder(URL_CAPACITY);
+        int urlLength = -1;
+        char separator = '?';
+
+        for (JdbcConnectionParameter p : PARAMETERS) {
+            if (p.isQueryParameter && urlLength == -1) {
+                appendUrl(sb, values, hosts, ports);
+                urlLength = sb.length();
+            }
+
+            Object val = value(conninfo, p, hosts);
+            values[p.ordinal()] = val;
+            if (p == JdbcConnectionParameter.PORT) {
+                val = JdbcElf.portValue(ports, (Integer) val);
+            }
+            if (val == null) {
+                continue;
+            }
+
+            String s = val.toString();
+            properties.setProperty(p.keyword, s);
+            if (p.isQueryParameter) {
+                info.setProperty(p.keyword, s);
+                sb.append(separator).append(p.keyword).append('=');
+                JdbcElf.appendEncoded(sb, s);
+                separator = '&';
+            }
+        }
+
+        if (urlLength == -1) {
+            appendUrl(sb, values, hosts, ports);
+            urlLength = sb.length();
+        }
+
+        return new Translation(values, hosts, ports,
+                sb.substring(0, urlLength), sb.toString(), info, properties);
+    }
+
+    /**
+     * Returns the value of the given JDBC connection parameter for the given
+     * conninfo, converted as by the corresponding JdbcElf getter.
+     *
+     * @param conninfo the conninfo
+     * @param param    the JDBC connection parameter
+     * @param hosts    the hosts of the conninfo
+     * @return the parameter value, or null
+     */
+    private static Object value(final PqConninfo conninfo,
+                                final JdbcConnectionParameter param,
+                                final List<String> hosts) {
+        switch (param) {
+            case HOST:
+                return (hosts.size() > 1) ? String.join(",", hosts)
+                        : conninfo.get(PqConninfoOption.HOST);
+            case PORT:
+                return JdbcElf.getPort(conninfo);
+            case DBNAME:
+                return conninfo.get(PqConninfoOption.DBNAME);
+            case USER:
+                return conninfo.get(PqConninfoOption.USER);
+            case PASSWORD:
+                return conninfo.get(PqConninfoOption.PASSWORD);
+            case OPTIONS:
+                return conninfo.get(PqConninfoOption.OPTIONS);
+            case SSLMODE:
+                return JdbcElf.getSslmode(conninfo);
+            case SSLCERT:
+                return conninfo.get(PqConninfoOption.SSLCERT);
+            case SSLKEY:
+                return conninfo.get(PqConninfoOption.SSLKEY);
+            case SSLROOTCERT:
+                return conninfo.get(PqConninfoOption.SSLROOTCERT);
+            case CONNECT_TIMEOUT:
+                return JdbcElf.getConnectTimeout(conninfo);
+            case KERBEROS_SERVER_NAME:
+                return conninfo.get(PqConninfoOption.KRBSRVNAME);
+            case APPLICATION_NAME:
+                return conninfo.get(PqConninfoOption.APPLICATION_NAME);
+            case TCP_KEEP_ALIVE:
+                return JdbcElf.getTcpKeepAlive(conninfo);
+            case GSSENCMODE:
+                return JdbcElf.getGssencmode(conninfo);
+            case GSSLIB:
+                return JdbcElf.getGsslib(conninfo);
+            case SSLPASSWORD:
+                return conninfo.get(PqConninfoOption.SSLPASSWORD);
+            case REPLICATION:
+                return JdbcElf.getReplication(conninfo);
+            case TARGET_SERVER_TYPE:
+                return JdbcElf.getTargetServerType(conninfo);
+            case LOAD_BALANCE_HOSTS:
+                return JdbcElf.getLoadBalanceHosts(conninfo);
+            case SSL:
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Appends the minimal JDBC URL for the given values, as JdbcElf.makeUrl
+     * does.
+     *
+     * @param sb     the builder to append to
+     * @param values the parameter values, by ordinal
+     * @param hosts  the hosts
+     * @param ports  the port of each host
+     */
+    private static void appendUrl(final StringBuilder sb,
+                                  final Object[] values,
+                                  final List<String> hosts,
+                                  final List<Integer> ports) {
+        JdbcElf.appendUrl(sb,
+                values[JdbcConnectionParameter.HOST.ordinal()],
+                values[JdbcConnectionParameter.PORT.ordinal()],
+                values[JdbcConnectionParameter.DBNAME.ordinal()],
+                hosts, ports);
+    }
+
+    /**
+     * The result of translating a PqConninfo: the JDBC connection parameter
+     * values along with the URLs and Properties made from them.
+     */
+    public static final class Translation {
+        /**
+         * The parameter values, by JdbcConnectionParameter ordinal.
+         */
+        private final Object[] values;
+
+        /**
+         * The hosts.
+         */
+        private final List<String> hosts;
+
+        /**
+         * The port of each host.
+         */
+        private final List<Integer> ports;
+
+        /**
+         * The minimal JDBC URL.
+         */
+        private final String url;
+
+        /**
+         * The JDBC URL including the query string.
+         */
+        private final String urlWithQueryString;
+
+        /**
+         * The properties accompanying the minimal JDBC URL.
+         */
+        private final Properties info;
+
+        /**
+         * All of the parameters as properties.
+         */
+        private final Properties properties;
+
+        /**
+         * Creates a translation.
+         *
+         * @param paramValues the parameter values, by ordinal
+         * @param hostList    the hosts
+         * @param portList    the port of each host
+         * @param minimalUrl  the minimal JDBC URL
+         * @param fullUrl     the JDBC URL including the query string
+         * @param infoProps   the properties accompanying the minimal URL
+         * @param allProps    all of the parameters as properties
+         */
+        Translation(final Object[] paramValues, final List<String> hostList,
+                    final List<Integer> portList, final String minimalUrl,
+                    final String fullUrl, final Properties infoProps,
+                    final Properties allProps) {
+            this.values = paramValues;
+            this.hosts = hostList;
+            this.ports = portList;
+            this.url = minimalUrl;
+            this.urlWithQueryString = fullUrl;
+            this.info = infoProps;
+            this.properties = allProps;
+        }
+
+        /**
+         * Returns the value of the given parameter.
+         *
+         * @param param the parameter
+         * @param type  the type of the parameter value
+         * @param <T>   the type of the parameter value
+         * @return the parameter value, or null
+         */
+        public <T> T get(final JdbcConnectionParameter param,
+                         final Class<T> type) {
+            return type.cast(values[param.ordinal()]);
+        }
+
+        /**
+         * Returns the hosts.
+         *
+         * @return the hosts
+         */
+        public List<String> getHosts() {
+            return hosts;
+        }
+
+        /**
+         * Returns the port of each host.
+         *
+         * @return the ports
+         */
+        public List<Integer> getPorts() {
+            return ports;
+        }
+
+        /**
+         * Returns the minimal JDBC URL.
+         *
+         * @return the JDBC URL
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Returns the JDBC URL including the query string.
+         *
+         * @return the JDBC URL including the query string
+         */
+        public String getUrlWithQueryString() {
+            return urlWithQueryString;
+        }
+
+        /**
+         * Returns the Properties to accompany the minimal JDBC URL. The
+         * Properties are owned by the translation; callers must not modify
+         * them.
+         *
+         * @return the connection info properties
+         */
+        public Properties getInfo() {
+            return info;
+        }
+
+        /**
+         * Returns all of the connection parameters as Properties. The
+         * Properties are owned by the translation; callers must not modify
+         * them.
+         *
+         * @return the connection parameter properties
+         */
+        public Properties getProperties() {
+            return properties;
+        }
+    }
+}
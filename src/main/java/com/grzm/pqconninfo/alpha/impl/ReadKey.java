@@ -0,0 +1,80 @@
+package com.grzm.pqconninfo.alpha.impl;
+
+import com.grzm.pqconninfo.alpha.Context;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Identifies a conninfo read: the context (by identity) and the initial
+ * options.
+ */
+final class ReadKey {
+    /**
+     * The context to read, compared by identity.
+     */
+    private final Context context;
+
+    /**
+     * The initial options.
+     */
+    private final EnumMap<PqConninfoOption, String> opts;
+
+    /**
+     * The precomputed hash code.
+     */
+    private final int hash;
+
+    /**
+     * Creates a key for reading the given context with the given options.
+     *
+     * @param readContext the context to read
+     * @param initialOpts the initial options, which must not be modified
+     *                    afterwards
+     */
+    ReadKey(final Context readContext,
+            final EnumMap<PqConninfoOption, String> initialOpts) {
+        this.context = readContext;
+        this.opts = initialOpts;
+        this.hash = Objects.hash(System.identityHashCode(readContext),
+                initialOpts);
+    }
+
+    /**
+     * @return the context to read
+     */
+    Context getContext() {
+        return context;
+    }
+
+    /**
+     * Returns the initial options.
+     *
+     * @return the initial options, unmodifiable
+     */
+    Map<PqConninfoOption, String> getOpts() {
+        return Collections.unmodifiableMap(opts);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ReadKey that = (ReadKey) o;
+        return context == that.context && opts.equals(that.opts);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,150 @@
+package com.grzm.pqconninfo.alpha.impl;
+
+import com.grzm.pqconninfo.alpha.Context;
+import com.grzm.pqconninfo.alpha.EnvVars;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.util.FileStamp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A snapshot of everything outside of the initial properties that can
+ * affect the conninfo read from a context: the libpq environment variables
+ * and the attributes of the service files and passfiles.
+ *
+ * If two fingerprints of the same context are equal, reading the context
+ * with the same initial properties returns the same conninfo.
+ */
+public final class SourceFingerprint {
+
+    /**
+     * Environment variables that aren't conninfo options, but affect which
+     * files are read.
+     */
+    private static final String[] FILE_ENVIRONMENT_VARIABLES
+            = {EnvVars.PGSERVICEFILE, EnvVars.PGSYSCONFDIR};
+
+    /**
+     * Environment variable values, in PqConninfoOption order followed by
+     * FILE_ENVIRONMENT_VARIABLES.
+     */
+    private final String[] env;
+
+    /**
+     * The names of the source files.
+     */
+    private final List<String> filenames;
+
+    /**
+     * The attributes of the source files, in filenames order. An element is
+     * null if the file doesn't exist or its attributes can't be read.
+     */
+    private final FileStamp[] stamps;
+
+    /**
+     * Creates a fingerprint.
+     *
+     * @param envValues  the environment variable values
+     * @param fileNames  the names of the source files
+     * @param fileStamps the attributes of the source files
+     */
+    private SourceFingerprint(final String[] envValues,
+                              final List<String> fileNames,
+                              final FileStamp[] fileStamps) {
+        this.env = envValues;
+        this.filenames = fileNames;
+        this.stamps = fileStamps;
+    }
+
+    /**
+     * Takes a fingerprint of the given context.
+     *
+     * @param context the context to fingerprint
+     * @return the fingerprint
+     */
+    public static SourceFingerprint of(final Context context) {
+        List<PqConninfoOption> options
+                = PqConninfoOption.environmentOptions();
+        String[] env = new String[options.size()
+                + FILE_ENVIRONMENT_VARIABLES.length];
+        int i = 0;
+        for (PqConninfoOption opt : options) {
+            env[i++] = context.getenv(opt.environmentVariable);
+        }
+        for (String var : FILE_ENVIRONMENT_VARIABLES) {
+            env[i++] = context.getenv(var);
+        }
+
+        List<String> filenames = sourceFilenames(context);
+        FileStamp[] stamps = new FileStamp[filenames.size()];
+        for (int j = 0; j < stamps.length; j++) {
+            stamps[j] = FileStamp.read(filenames.get(j));
+        }
+
+        return new SourceFingerprint(env, filenames, stamps);
+    }
+
+    /**
+     * Returns the names of the service files and passfiles the given context
+     * reads, as far as the context knows them.
+     *
+     * @param context the context
+     * @return the source filenames
+     */
+    public static List<String> sourceFilenames(final Context context) {
+        List<String> filenames = new ArrayList<>();
+        addIfNotNull(filenames, context.getenv(EnvVars.PGSERVICEFILE));
+        addIfNotNull(filenames, context.getUserServiceFilename());
+        if (context.getenv(EnvVars.PGSYSCONFDIR) != null) {
+            addIfNotNull(filenames,
+                    context.getEnvSysconfdirServiceFilename());
+        } else {
+            addIfNotNull(filenames,
+                    context.getConfigSysconfdirServiceFilename());
+        }
+        addIfNotNull(filenames,
+                context.getenv(PqConninfoOption.PASSFILE.environmentVariable));
+        addIfNotNull(filenames, context.getUserPassfileFilename());
+        return filenames;
+    }
+
+    private static void addIfNotNull(final List<String> list,
+                                     final String s) {
+        if (s != null) {
+            list.add(s);
+        }
+    }
+
+    /**
+     * Returns the names of the source files in this fingerprint.
+     *
+     * @return the source filenames
+     */
+    public List<String> getFilenames() {
+        return Collections.unmodifiableList(filenames);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SourceFingerprint that = (SourceFingerprint) o;
+        return Arrays.equals(env, that.env)
+                && filenames.equals(that.filenames)
+                && Arrays.equals(stamps, that.stamps);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(Arrays.hashCode(env), filenames,
+                Arrays.hashCode(stamps));
+    }
+}
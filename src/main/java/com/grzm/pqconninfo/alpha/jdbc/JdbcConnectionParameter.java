@@ -22,7 +22,9 @@ public enum JdbcConnectionParameter {
     GSSENCMODE("gssencmode"),
     GSSLIB("gsslib"),
     SSLPASSWORD("sslpassword"),
-    REPLICATION("replication");
+    REPLICATION("replication"),
+    TARGET_SERVER_TYPE("targetServerType"),
+    LOAD_BALANCE_HOSTS("loadBalanceHosts");
 
     /**
      * The property name of the parameter.
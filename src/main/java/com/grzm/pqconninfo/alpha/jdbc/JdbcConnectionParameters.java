@@ -1,31 +1,40 @@
 package com.grzm.pqconninfo.alpha.jdbc;
 
 import com.grzm.pqconninfo.alpha.PqConninfo;
-import com.grzm.pqconninfo.alpha.impl.JdbcElf;
+import com.grzm.pqconninfo.alpha.impl.JdbcTranslator;
+import com.grzm.pqconninfo.alpha.impl.JdbcTranslator.Translation;
+import com.grzm.pqconninfo.alpha.util.Interner;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.stream.Collectors;
 
-/*
-  TODO support multiple hosts
-  Multiple hosts with libpq
-  https://www.postgresql.org/docs/current/libpq-connect.html
-  Connection Fail-over in JDBC, supports multiple hosts
-  https://jdbc.postgresql.org/documentation/head/connect.html#connection-parameters
- */
-
 /**
  * Connection Parameters for PostgreSQL JDBC Driver.
+ *
+ * Multiple hosts (libpq host and port lists, see
+ * https://www.postgresql.org/docs/current/libpq-connect.html) are
+ * translated to the JDBC driver's connection fail-over form, listing each
+ * host and port in the URL (see
+ * https://jdbc.postgresql.org/documentation/head/connect.html).
  */
 
 public final class JdbcConnectionParameters {
 
+    /**
+     * Canonical instances, see intern.
+     */
+    private static final Interner<JdbcConnectionParameters> INTERNER
+            = new Interner<>();
+
     // url params
     private final String host;
     private final Integer port;
     private final String dbname;
+    private final List<String> hosts;
+    private final List<Integer> ports;
 
     // query params
     private final String user;
@@ -43,26 +52,72 @@ public final class JdbcConnectionParameters {
     private final String gsslib;
     private final String sslpassword;
     private final String replication;
+    private final String targetServerType;
+    private final Boolean loadBalanceHosts;
+
+    // values derived from the parameters
+    /**
+     * The URL, without query string.
+     */
+    private final String url;
+
+    /**
+     * The URL, with the query parameters in the query string.
+     */
+    private final String urlWithQueryString;
+
+    /**
+     * The properties accompanying the URL without query string.
+     */
+    private final Properties info;
+
+    /**
+     * All of the query parameters.
+     */
+    private final Properties properties;
 
-    private JdbcConnectionParameters(final PqConninfo conninfo) {
-        this.host = JdbcElf.getHost(conninfo);
-        this.port = JdbcElf.getPort(conninfo);
-        this.dbname = JdbcElf.getDbname(conninfo);
-        this.user = JdbcElf.getUser(conninfo);
-        this.password = JdbcElf.getPassword(conninfo);
-        this.options = JdbcElf.getOptions(conninfo);
-        this.sslmode = JdbcElf.getSslmode(conninfo);
-        this.sslcert = JdbcElf.getSslcert(conninfo);
-        this.sslkey = JdbcElf.getSslkey(conninfo);
-        this.sslrootcert = JdbcElf.getSslrootcert(conninfo);
-        this.connectTimeout = JdbcElf.getConnectTimeout(conninfo);
-        this.kerberosServerName = JdbcElf.getKerberosServerName(conninfo);
-        this.applicationName = JdbcElf.getApplicationName(conninfo);
-        this.tcpKeepAlive = JdbcElf.getTcpKeepAlive(conninfo);
-        this.gssencmode = JdbcElf.getGssencmode(conninfo);
-        this.gsslib = JdbcElf.getGsslib(conninfo);
-        this.sslpassword = JdbcElf.getSslpassword(conninfo);
-        this.replication = JdbcElf.getReplication(conninfo);
+    /**
+     * Cached hash code, or 0 if not yet computed.
+     */
+    private int hash;
+
+    private JdbcConnectionParameters(final Translation t) {
+        this.host = t.get(JdbcConnectionParameter.HOST, String.class);
+        this.port = t.get(JdbcConnectionParameter.PORT, Integer.class);
+        this.dbname = t.get(JdbcConnectionParameter.DBNAME, String.class);
+        this.hosts = t.getHosts();
+        this.ports = t.getPorts();
+        this.user = t.get(JdbcConnectionParameter.USER, String.class);
+        this.password = t.get(JdbcConnectionParameter.PASSWORD, String.class);
+        this.options = t.get(JdbcConnectionParameter.OPTIONS, String.class);
+        this.sslmode = t.get(JdbcConnectionParameter.SSLMODE, String.class);
+        this.sslcert = t.get(JdbcConnectionParameter.SSLCERT, String.class);
+        this.sslkey = t.get(JdbcConnectionParameter.SSLKEY, String.class);
+        this.sslrootcert = t.get(JdbcConnectionParameter.SSLROOTCERT,
+                String.class);
+        this.connectTimeout = t.get(JdbcConnectionParameter.CONNECT_TIMEOUT,
+                Integer.class);
+        this.kerberosServerName = t.get(
+                JdbcConnectionParameter.KERBEROS_SERVER_NAME, String.class);
+        this.applicationName = t.get(JdbcConnectionParameter.APPLICATION_NAME,
+                String.class);
+        this.tcpKeepAlive = t.get(JdbcConnectionParameter.TCP_KEEP_ALIVE,
+                Boolean.class);
+        this.gssencmode = t.get(JdbcConnectionParameter.GSSENCMODE,
+                String.class);
+        this.gsslib = t.get(JdbcConnectionParameter.GSSLIB, String.class);
+        this.sslpassword = t.get(JdbcConnectionParameter.SSLPASSWORD,
+                String.class);
+        this.replication = t.get(JdbcConnectionParameter.REPLICATION,
+                String.class);
+        this.targetServerType = t.get(
+                JdbcConnectionParameter.TARGET_SERVER_TYPE, String.class);
+        this.loadBalanceHosts = t.get(
+                JdbcConnectionParameter.LOAD_BALANCE_HOSTS, Boolean.class);
+        this.url = t.getUrl();
+        this.urlWithQueryString = t.getUrlWithQueryString();
+        this.info = t.getInfo();
+        this.properties = t.getProperties();
     }
 
     /**
@@ -71,9 +126,24 @@ public final class JdbcConnectionParameters {
      *
      * @param conninfo the source PqConninfo instance
      * @return a new JdbcConnectionParameters instance
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         numbers of hosts and ports don't match
      */
     public static JdbcConnectionParameters from(final PqConninfo conninfo) {
-        return new JdbcConnectionParameters(conninfo);
+        return new JdbcConnectionParameters(
+                JdbcTranslator.translate(conninfo));
+    }
+
+    /**
+     * Returns the canonical instance equal to these parameters. Equal
+     * parameters interned share one instance, along with its URLs and
+     * Properties, so they can be compared by reference. Canonical instances
+     * are held weakly and are collected once unused.
+     *
+     * @return the canonical instance
+     */
+    public JdbcConnectionParameters intern() {
+        return INTERNER.intern(this);
     }
 
     /**
@@ -83,7 +153,7 @@ public final class JdbcConnectionParameters {
      * @return the JDBC URL
      */
     public String getUrl() {
-        return JdbcElf.makeUrl(this);
+        return url;
     }
 
     /**
@@ -93,26 +163,32 @@ public final class JdbcConnectionParameters {
      * @return the JDBC URL including the query string
      */
     public String getUrlWithQueryString() {
-        return JdbcElf.makeUrlWithQueryString(this);
+        return urlWithQueryString;
     }
 
     /**
      * Returns the JDBC connection properties that necessary to accompany
      * a minimal JDBC URL.
      *
+     * The properties are computed when the parameters are created; each call
+     * returns a copy the caller is free to modify.
+     *
      * @return the JDBC connection parameter properties
      */
     public Properties getInfo() {
-        return JdbcElf.makeInfo(this);
+        return (Properties) info.clone();
     }
 
     /**
      * Returns the given JDBC connection parameters as Java Properties.
      *
+     * The properties are computed when the parameters are created; each call
+     * returns a copy the caller is free to modify.
+     *
      * @return the JDBC connection parameters as properties
      */
     public Properties toProperties() {
-        return JdbcElf.makeProperties(this);
+        return (Properties) properties.clone();
     }
 
     /**
@@ -160,6 +236,26 @@ public final class JdbcConnectionParameters {
         return host;
     }
 
+    /**
+     * Returns the hosts for the JDBC connection parameters. With multiple
+     * hosts, the host value is the comma-separated list of these hosts.
+     *
+     * @return the hosts, or an empty list if host isn't set
+     */
+    public List<String> getHosts() {
+        return hosts;
+    }
+
+    /**
+     * Returns the port of each host for the JDBC connection parameters. With
+     * multiple ports, the port value is null.
+     *
+     * @return the ports, or an empty list if port isn't set
+     */
+    public List<Integer> getPorts() {
+        return ports;
+    }
+
     /**
      * Returns the options value for the JDBC connection parameters.
      *
@@ -196,8 +292,10 @@ public final class JdbcConnectionParameters {
             return false;
         }
         JdbcConnectionParameters that = (JdbcConnectionParameters) o;
-        return Objects.equals(host, that.host)
+        return hashCode() == that.hashCode()
+                && Objects.equals(host, that.host)
                 && Objects.equals(port, that.port)
+                && Objects.equals(ports, that.ports)
                 && Objects.equals(dbname, that.dbname)
                 && Objects.equals(user, that.user)
                 && Objects.equals(password, that.password)
@@ -213,15 +311,23 @@ public final class JdbcConnectionParameters {
                 && Objects.equals(gssencmode, that.gssencmode)
                 && Objects.equals(gsslib, that.gsslib)
                 && Objects.equals(sslpassword, that.sslpassword)
-                && Objects.equals(replication, that.replication);
+                && Objects.equals(replication, that.replication)
+                && Objects.equals(targetServerType, that.targetServerType)
+                && Objects.equals(loadBalanceHosts, that.loadBalanceHosts);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(host, port, dbname, user, password,
-                options, sslmode, sslcert, sslkey, sslrootcert,
-                connectTimeout, kerberosServerName, applicationName,
-                tcpKeepAlive, gssencmode, gsslib, sslpassword, replication);
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(host, port, ports, dbname, user, password,
+                    options, sslmode, sslcert, sslkey, sslrootcert,
+                    connectTimeout, kerberosServerName, applicationName,
+                    tcpKeepAlive, gssencmode, gsslib, sslpassword,
+                    replication, targetServerType, loadBalanceHosts);
+            hash = h;
+        }
+        return h;
     }
 
     @Override
@@ -230,6 +336,7 @@ public final class JdbcConnectionParameters {
                 + Arrays.stream(new String[]{
                 (host == null ? null : "host='" + host + '\''),
                 (port == null ? null : "port=" + port),
+                (ports.size() < 2 ? null : "ports=" + ports),
                 (dbname == null ? null : "dbname='" + dbname + '\''),
                 (user == null ? null : "user='" + user + '\''),
                 (password == null ? null : "password='****'"),
@@ -252,7 +359,11 @@ public final class JdbcConnectionParameters {
                 (gsslib == null ? null : "gsslib='" + gsslib + '\''),
                 (sslpassword == null ? null : "sslpassword='****'"),
                 (replication == null
-                        ? null : "replication='" + replication + '\'')})
+                        ? null : "replication='" + replication + '\''),
+                (targetServerType == null ? null
+                        : "targetServerType='" + targetServerType + '\''),
+                (loadBalanceHosts == null
+                        ? null : "loadBalanceHosts=" + loadBalanceHosts)})
                 .filter(Objects::nonNull).collect(Collectors.joining(", "))
                 + '}';
     }
@@ -329,6 +440,24 @@ public final class JdbcConnectionParameters {
         return replication;
     }
 
+    /**
+     * Returns the targetServerType value for the JDBC connection parameters.
+     *
+     * @return the targetServerType value
+     */
+    public String getTargetServerType() {
+        return targetServerType;
+    }
+
+    /**
+     * Returns the loadBalanceHosts value for the JDBC connection parameters.
+     *
+     * @return the loadBalanceHosts value
+     */
+    public Boolean getLoadBalanceHosts() {
+        return loadBalanceHosts;
+    }
+
     /**
      * Returns the sslpassword value for the JDBC connection parameters.
      *
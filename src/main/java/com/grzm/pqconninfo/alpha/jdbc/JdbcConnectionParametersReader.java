@@ -1,9 +1,13 @@
 package com.grzm.pqconninfo.alpha.jdbc;
 
+import com.grzm.pqconninfo.alpha.Context;
 import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.PqConninfoOptionsReader;
 import com.grzm.pqconninfo.alpha.PqConninfoReader;
 import com.grzm.pqconninfo.alpha.impl.EnumMapParamsReader;
 
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -22,6 +26,8 @@ public final class JdbcConnectionParametersReader {
      * properties.
      *
      * @return the JDBC connection parameters
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         numbers of hosts, host addresses, and ports don't match
      */
     public static JdbcConnectionParameters read() {
         return read(new Properties());
@@ -33,6 +39,8 @@ public final class JdbcConnectionParametersReader {
      *
      * @param props the initial properties with which to seed the reader
      * @return the JDBC connection parameters
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         numbers of hosts, host addresses, and ports don't match
      */
     public static JdbcConnectionParameters read(final Properties props) {
         PqConninfo conninfo = PqConninfoReader.read(props);
@@ -40,4 +48,98 @@ public final class JdbcConnectionParametersReader {
         return reader.read(conninfo);
     }
 
+    /**
+     * Reads JDBC connection parameters from the given context with the given
+     * reader and initial properties. Use this with a shared caching or
+     * coalescing reader (see PqConninfoReader.cached and
+     * PqConninfoReader.coalescing) and a shared context.
+     *
+     * @param reader  the conninfo reader
+     * @param context the system context to read
+     * @param props   the initial properties with which to seed the reader
+     * @return the JDBC connection parameters
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         numbers of hosts, host addresses, and ports don't match
+     */
+    public static JdbcConnectionParameters read(
+            final PqConninfoOptionsReader reader,
+            final Context context,
+            final Properties props) {
+        PqConninfo conninfo = reader.read(context, props);
+        EnumMapParamsReader paramsReader = new EnumMapParamsReader();
+        return paramsReader.read(conninfo);
+    }
+
+    /**
+     * Reads JDBC connection parameters from the environment with the given
+     * initial options.
+     *
+     * @param opts the initial options with which to seed the reader
+     * @return the JDBC connection parameters
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         numbers of hosts, host addresses, and ports don't match
+     */
+    public static JdbcConnectionParameters read(
+            final Map<PqConninfoOption, String> opts) {
+        PqConninfo conninfo = PqConninfoReader.read(opts);
+        EnumMapParamsReader reader = new EnumMapParamsReader();
+        return reader.read(conninfo);
+    }
+
+    /**
+     * Reads JDBC connection parameters from the given context with the given
+     * reader and initial options.
+     *
+     * @param reader  the conninfo reader
+     * @param context the system context to read
+     * @param opts    the initial options with which to seed the reader
+     * @return the JDBC connection parameters
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         numbers of hosts, host addresses, and ports don't match
+     */
+    public static JdbcConnectionParameters read(
+            final PqConninfoOptionsReader reader,
+            final Context context,
+            final Map<PqConninfoOption, String> opts) {
+        PqConninfo conninfo = reader.read(context, opts);
+        EnumMapParamsReader paramsReader = new EnumMapParamsReader();
+        return paramsReader.read(conninfo);
+    }
+
+    /**
+     * Reads JDBC connection parameters from the environment with the initial
+     * options given in the given PostgreSQL JDBC URL. Options missing from
+     * the URL, such as the password, are filled in from service files, the
+     * environment, and the passfile; getUrl and getUrlWithQueryString of
+     * the result regenerate the URL.
+     *
+     * @param url the JDBC URL
+     * @return the JDBC connection parameters
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         URL can't be parsed, or the numbers of hosts, host addresses,
+     *         and ports don't match
+     */
+    public static JdbcConnectionParameters readUrl(final String url) {
+        return read(JdbcUrl.parse(url));
+    }
+
+    /**
+     * Reads JDBC connection parameters from the given context with the given
+     * reader and the initial options given in the given PostgreSQL JDBC URL.
+     *
+     * @param reader  the conninfo reader
+     * @param context the system context to read
+     * @param url     the JDBC URL
+     * @return the JDBC connection parameters
+     * @throws com.grzm.pqconninfo.alpha.MalformedConninfoException if the
+     *         URL can't be parsed, or the numbers of hosts, host addresses,
+     *         and ports don't match
+     */
+    public static JdbcConnectionParameters readUrl(
+            final PqConninfoOptionsReader reader,
+            final Context context,
+            final String url) {
+        return read(reader, context, JdbcUrl.parse(url));
+    }
+
 }
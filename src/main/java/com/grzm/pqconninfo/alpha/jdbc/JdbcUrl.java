@@ -0,0 +1,408 @@
+package com.grzm.pqconninfo.alpha.jdbc;
+
+import com.grzm.pqconninfo.alpha.MalformedConninfoException;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.PqSslmode;
+import com.grzm.pqconninfo.alpha.util.Util;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+
+/**
+ * JdbcUrl provides a static method for parsing PostgreSQL JDBC Driver URLs
+ * back into libpq conninfo options, the reverse of the translation done by
+ * JdbcConnectionParameters.
+ *
+ * The URL forms the JDBC driver accepts are supported:
+ * <ul>
+ *   <li>jdbc:postgresql:database</li>
+ *   <li>jdbc:postgresql:/</li>
+ *   <li>jdbc:postgresql://host:port,host:port/database?params</li>
+ * </ul>
+ *
+ * Hosts without a port are left without a port, so a port can be supplied
+ * by the environment or a service file (the JDBC driver itself would use
+ * the default port). Bracketed IPv6 host addresses are unbracketed.
+ *
+ * Query parameters the JDBC connection parameters are translated from are
+ * mapped back to their conninfo options, and values are translated back
+ * where the JDBC driver's differ from libpq's (targetServerType, for
+ * example). Other query parameters are ignored. As in the JDBC driver,
+ * the last value of a repeated parameter wins, and the database and
+ * parameter values are decoded as application/x-www-form-urlencoded.
+ *
+ * The URL is scanned once, without regular expressions or URLDecoder.
+ */
+public final class JdbcUrl {
+
+    /**
+     * The prefix of PostgreSQL JDBC URLs.
+     */
+    static final String URL_PREFIX = "jdbc:postgresql:";
+
+    /**
+     * The largest valid port number.
+     */
+    private static final int MAX_PORT = 65535;
+
+    /**
+     * The radix of port numbers.
+     */
+    private static final int DECIMAL_RADIX = 10;
+
+    /**
+     * JDBC connection parameters, by keyword.
+     */
+    private static final HashMap<String, JdbcConnectionParameter> PARAMETERS
+            = new HashMap<>();
+
+    static {
+        for (JdbcConnectionParameter p : JdbcConnectionParameter.values()) {
+            PARAMETERS.put(p.keyword, p);
+        }
+    }
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private JdbcUrl() { /* no constructor */ }
+
+    /**
+     * Parses the given PostgreSQL JDBC URL into conninfo options.
+     *
+     * @param url the JDBC URL
+     * @return the conninfo options given in the URL
+     * @throws MalformedConninfoException if the URL can't be parsed
+     */
+    public static EnumMap<PqConninfoOption, String> parse(final String url) {
+        if (!url.startsWith(URL_PREFIX)) {
+            throw new MalformedConninfoException(String.format(
+                    "invalid PostgreSQL JDBC URL: \"%s\"", url));
+        }
+
+        EnumMap<PqConninfoOption, String> opts
+                = new EnumMap<>(PqConninfoOption.class);
+        int n = url.length();
+        int query = url.indexOf('?', URL_PREFIX.length());
+        int serverEnd = query < 0 ? n : query;
+        int i = URL_PREFIX.length();
+
+        if (url.startsWith("//", i)) {
+            i += 2;
+            int slash = url.indexOf('/', i);
+            int hostsEnd = slash < 0 || slash > serverEnd ? serverEnd : slash;
+            parseHosts(opts, url, i, hostsEnd);
+            if (hostsEnd < serverEnd) {
+                putDecoded(opts, PqConninfoOption.DBNAME, url, hostsEnd + 1,
+                        serverEnd);
+            }
+        } else if (!(serverEnd - i == 1 && url.charAt(i) == '/')) {
+            putDecoded(opts, PqConninfoOption.DBNAME, url, i, serverEnd);
+        }
+
+        if (query >= 0) {
+            parseParams(opts, url, query + 1);
+        }
+        return opts;
+    }
+
+    /**
+     * Parses the comma-separated host[:port] list in the given range of the
+     * given URL. Hosts and ports are each joined with commas, as in libpq
+     * host and port lists.
+     *
+     * @param opts  the options to add to
+     * @param url   the JDBC URL
+     * @param start the start of the host list, inclusive
+     * @param end   the end of the host list, exclusive
+     */
+    private static void parseHosts(
+            final EnumMap<PqConninfoOption, String> opts,
+            final String url, final int start, final int end) {
+        if (start == end) {
+            return;
+        }
+        StringBuilder hosts = new StringBuilder(end - start);
+        StringBuilder ports = new StringBuilder();
+        boolean anyPort = false;
+        int i = start;
+        while (true) {
+            int comma = url.indexOf(',', i);
+            int addressEnd = comma < 0 || comma > end ? end : comma;
+
+            // The port follows the last colon, unless it's inside brackets.
+            int hostEnd = addressEnd;
+            for (int j = addressEnd - 1; j >= i; j--) {
+                char c = url.charAt(j);
+                if (c == ':') {
+                    hostEnd = j;
+                    break;
+                }
+                if (c == ']') {
+                    break;
+                }
+            }
+            if (hostEnd < addressEnd) {
+                checkPort(url, hostEnd + 1, addressEnd);
+                ports.append(url, hostEnd + 1, addressEnd);
+                anyPort = true;
+            }
+            if (hostEnd - i >= 2 && url.charAt(i) == '['
+                    && url.charAt(hostEnd - 1) == ']') {
+                hosts.append(url, i + 1, hostEnd - 1);
+            } else {
+                hosts.append(url, i, hostEnd);
+            }
+
+            if (addressEnd == end) {
+                break;
+            }
+            hosts.append(',');
+            ports.append(',');
+            i = addressEnd + 1;
+        }
+        opts.put(PqConninfoOption.HOST, hosts.toString());
+        if (anyPort) {
+            opts.put(PqConninfoOption.PORT, ports.toString());
+        }
+    }
+
+    /**
+     * Checks that the given range of the given URL is a port number, as the
+     * JDBC driver does: an integer from 1 to 65535.
+     *
+     * @param url   the JDBC URL
+     * @param start the start of the port, inclusive
+     * @param end   the end of the port, exclusive
+     * @throws MalformedConninfoException if it isn't a port number
+     */
+    private static void checkPort(final String url, final int start,
+                                  final int end) {
+        int port = 0;
+        for (int i = start; i < end && port <= MAX_PORT; i++) {
+            char c = url.charAt(i);
+            if (c < '0' || c > '9') {
+                port = -1;
+                break;
+            }
+            port = port * DECIMAL_RADIX + (c - '0');
+        }
+        if (start == end || port < 1 || port > MAX_PORT) {
+            throw new MalformedConninfoException(String.format(
+                    "invalid port number: \"%s\"",
+                    url.substring(start, end)));
+        }
+    }
+
+    /**
+     * Parses the query parameters of the given URL, starting at the given
+     * index, into the given options.
+     *
+     * @param opts  the options to add to
+     * @param url   the JDBC URL
+     * @param start the index of the first parameter
+     */
+    private static void parseParams(
+            final EnumMap<PqConninfoOption, String> opts,
+            final String url, final int start) {
+        int n = url.length();
+        String ssl = null;
+        int i = start;
+        while (i < n) {
+            int amp = url.indexOf('&', i);
+            int end = amp < 0 ? n : amp;
+            int equals = url.indexOf('=', i);
+            if (equals < 0 || equals > end) {
+                equals = end;
+            }
+
+            if (equals > i) {
+                JdbcConnectionParameter param
+                        = PARAMETERS.get(url.substring(i, equals));
+                if (param != null) {
+                    String value = equals < end
+                            ? decode(url, equals + 1, end) : "";
+                    if (param == JdbcConnectionParameter.SSL) {
+                        ssl = value;
+                    } else {
+                        putParameter(opts, param, value);
+                    }
+                }
+            }
+            i = end + 1;
+        }
+
+        // The JDBC driver's ssl parameter, without sslmode, means
+        // verify-full.
+        if (ssl != null && !opts.containsKey(PqConninfoOption.SSLMODE)
+                && (ssl.isEmpty() || "true".equalsIgnoreCase(ssl))) {
+            opts.put(PqConninfoOption.SSLMODE, PqSslmode.VERIFY_FULL.keyword);
+        }
+    }
+
+    /**
+     * Puts the conninfo option corresponding to the given JDBC connection
+     * parameter value. Values without a libpq equivalent are dropped, and
+     * remove any earlier value of the option.
+     *
+     * @param opts  the options to add to
+     * @param param the JDBC connection parameter
+     * @param value the JDBC connection parameter value
+     */
+    private static void putParameter(
+            final EnumMap<PqConninfoOption, String> opts,
+            final JdbcConnectionParameter param, final String value) {
+        PqConninfoOption option;
+        String val = value;
+        switch (param) {
+            case USER:
+                option = PqConninfoOption.USER;
+                break;
+            case PASSWORD:
+                option = PqConninfoOption.PASSWORD;
+                break;
+            case OPTIONS:
+                option = PqConninfoOption.OPTIONS;
+                break;
+            case SSLMODE:
+                option = PqConninfoOption.SSLMODE;
+                break;
+            case SSLCERT:
+                option = PqConninfoOption.SSLCERT;
+                break;
+            case SSLKEY:
+                option = PqConninfoOption.SSLKEY;
+                break;
+            case SSLROOTCERT:
+                option = PqConninfoOption.SSLROOTCERT;
+                break;
+            case CONNECT_TIMEOUT:
+                option = PqConninfoOption.CONNECT_TIMEOUT;
+                break;
+            case KERBEROS_SERVER_NAME:
+                option = PqConninfoOption.KRBSRVNAME;
+                break;
+            case APPLICATION_NAME:
+                option = PqConninfoOption.APPLICATION_NAME;
+                break;
+            case TCP_KEEP_ALIVE:
+                option = PqConninfoOption.KEEPALIVES;
+                val = booleanValue(value, "1", "0");
+                break;
+            case GSSENCMODE:
+                option = PqConninfoOption.GSSENCMODE;
+                val = "allow".equals(value) ? null : value;
+                break;
+            case GSSLIB:
+                option = PqConninfoOption.GSSLIB;
+                val = "gssapi".equals(value) ? value : null;
+                break;
+            case SSLPASSWORD:
+                option = PqConninfoOption.SSLPASSWORD;
+                break;
+            case REPLICATION:
+                option = PqConninfoOption.REPLICATION;
+                break;
+            case TARGET_SERVER_TYPE:
+                option = PqConninfoOption.TARGET_SESSION_ATTRS;
+                val = targetSessionAttrs(value);
+                break;
+            case LOAD_BALANCE_HOSTS:
+                option = PqConninfoOption.LOAD_BALANCE_HOSTS;
+                val = booleanValue(value, "random", "disable");
+                break;
+            default:
+                // host, port, and dbname are given in the URL itself.
+                return;
+        }
+        if (val == null) {
+            opts.remove(option);
+        } else {
+            opts.put(option, val);
+        }
+    }
+
+    /**
+     * Returns the libpq value for the given JDBC boolean value.
+     *
+     * @param value   the JDBC boolean value
+     * @param ifTrue  the libpq value for true
+     * @param ifFalse the libpq value for false
+     * @return the libpq value, or null if the value isn't a boolean
+     */
+    private static String booleanValue(final String value,
+                                       final String ifTrue,
+                                       final String ifFalse) {
+        if ("true".equalsIgnoreCase(value)) {
+            return ifTrue;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return ifFalse;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the libpq target_session_attrs value for the given JDBC
+     * targetServerType value, including the driver's deprecated master and
+     * slave spellings.
+     *
+     * @param targetServerType the JDBC targetServerType value
+     * @return the target_session_attrs value, or null if there's no
+     * equivalent
+     */
+    private static String targetSessionAttrs(final String targetServerType) {
+        switch (targetServerType) {
+            case "any":
+                return "any";
+            case "primary":
+            case "master":
+                return "primary";
+            case "secondary":
+            case "slave":
+                return "standby";
+            case "preferSecondary":
+            case "preferSlave":
+                return "prefer-standby";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Puts the decoded value of the given range of the given URL as the
+     * value of the given option, if the range isn't empty.
+     *
+     * @param opts   the options to add to
+     * @param option the option
+     * @param url    the JDBC URL
+     * @param start  the start of the range, inclusive
+     * @param end    the end of the range, exclusive
+     */
+    private static void putDecoded(
+            final EnumMap<PqConninfoOption, String> opts,
+            final PqConninfoOption option,
+            final String url, final int start, final int end) {
+        if (start < end) {
+            opts.put(option, decode(url, start, end));
+        }
+    }
+
+    /**
+     * Decodes the given range of the given URL as
+     * application/x-www-form-urlencoded, as URLDecoder does.
+     *
+     * @param url   the JDBC URL
+     * @param start the start of the range, inclusive
+     * @param end   the end of the range, exclusive
+     * @return the decoded value
+     */
+    private static String decode(final String url, final int start,
+                                 final int end) {
+        try {
+            return Util.percentDecode(url, start, end, true);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedConninfoException(e.getMessage(), e);
+        }
+    }
+}
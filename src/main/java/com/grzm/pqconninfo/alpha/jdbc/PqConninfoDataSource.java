@@ -0,0 +1,482 @@
+package com.grzm.pqconninfo.alpha.jdbc;
+
+import com.grzm.pqconninfo.alpha.Context;
+import com.grzm.pqconninfo.alpha.FileChangeListener;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.PqConninfoOptionsReader;
+import com.grzm.pqconninfo.alpha.SystemContextFactory;
+import com.grzm.pqconninfo.alpha.impl.EnumMapConninfoReader;
+import com.grzm.pqconninfo.alpha.impl.SourceFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.EnumMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A DataSource that connects with the JDBC connection parameters read from
+ * a context, resolving them once and reusing the URL and Properties for
+ * every connection.
+ *
+ * The parameters are resolved again only when
+ * <ul>
+ *   <li>the SourceFingerprint of the context (the libpq environment
+ *   variables and the attributes of the service files and passfiles)
+ *   has changed since they were resolved. The fingerprint is checked at
+ *   most once per fingerprint check interval (one second by default)
+ *   rather than on every connection,</li>
+ *   <li>a file they were read from is reported changed (see
+ *   ContextFileWatcher and FileChangeListener), or</li>
+ *   <li>an authentication failure is reported, either by the caller with
+ *   reportAuthenticationFailure or by a connection attempt failing with
+ *   SQLState class 28 (invalid authorization specification).</li>
+ * </ul>
+ *
+ * A connection attempt that fails authentication re-resolves the
+ * parameters and, if they've changed (say, the password was rotated in
+ * the passfile), retries once with the new parameters. Connections made
+ * with an explicit user and password aren't retried: the caller's
+ * credentials are used as given, whatever the parameters resolve to.
+ *
+ * The parameters may be read through a caching reader (see
+ * PqConninfoReader.cached): whenever they're resolved again, the reader is
+ * asked to discard what it has cached from the context first.
+ *
+ * When the data source is registered with a ContextFileWatcher, file
+ * changes are reported as they happen, and the fingerprint check can be
+ * made rare (or turned off, with Long.MAX_VALUE) with
+ * setFingerprintCheckInterval.
+ *
+ * Connections are made with the given Driver, or with DriverManager if no
+ * driver is given.
+ */
+public final class PqConninfoDataSource
+        implements DataSource, FileChangeListener {
+
+    /**
+     * The SQLState class of authentication failures.
+     */
+    private static final String INVALID_AUTHORIZATION_CLASS = "28";
+
+    /**
+     * The SQLState the JDBC driver uses when it can't establish a
+     * connection.
+     */
+    private static final String CONNECTION_FAILURE_STATE = "08001";
+
+    /**
+     * The JDBC driver property for the login timeout, in seconds.
+     */
+    private static final String LOGIN_TIMEOUT = "loginTimeout";
+
+    /**
+     * The default interval between fingerprint checks, in milliseconds.
+     */
+    public static final long DEFAULT_FINGERPRINT_CHECK_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The conninfo reader.
+     */
+    private final PqConninfoOptionsReader reader;
+
+    /**
+     * The system context to read.
+     */
+    private final Context context;
+
+    /**
+     * The initial options with which to seed the reader.
+     */
+    private final EnumMap<PqConninfoOption, String> opts;
+
+    /**
+     * The driver to connect with, or null to use DriverManager.
+     */
+    private final Driver driver;
+
+    /**
+     * The currently resolved parameters, or null if they need to be
+     * resolved.
+     */
+    private volatile Resolved resolved;
+
+    /**
+     * Source of the current time, in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The minimum time between fingerprint checks, in nanoseconds.
+     */
+    private volatile long fingerprintCheckIntervalNanos
+            = TimeUnit.MILLISECONDS.toNanos(
+                    DEFAULT_FINGERPRINT_CHECK_INTERVAL_MILLIS);
+
+    /**
+     * The log writer, unused but kept as required by DataSource.
+     */
+    private volatile PrintWriter logWriter;
+
+    /**
+     * The login timeout, in seconds, or zero for the driver's default.
+     */
+    private volatile int loginTimeout;
+
+    /**
+     * Creates a data source reading the host system, assuming no initial
+     * properties, and connecting with DriverManager.
+     */
+    public PqConninfoDataSource() {
+        this(new Properties());
+    }
+
+    /**
+     * Creates a data source reading the host system with the given initial
+     * properties, and connecting with DriverManager.
+     *
+     * @param props the initial properties with which to seed the reader
+     */
+    public PqConninfoDataSource(final Properties props) {
+        this(new EnumMapConninfoReader(), SystemContextFactory.create(),
+                props, null);
+    }
+
+    /**
+     * Creates a data source reading the given context with the given reader
+     * and initial properties.
+     *
+     * @param optionsReader the conninfo reader
+     * @param sysContext    the system context to read
+     * @param props         the initial properties with which to seed the
+     *                      reader
+     * @param jdbcDriver    the driver to connect with, or null to use
+     *                      DriverManager
+     */
+    public PqConninfoDataSource(final PqConninfoOptionsReader optionsReader,
+                                final Context sysContext,
+                                final Properties props,
+                                final Driver jdbcDriver) {
+        this(optionsReader, sysContext, props, jdbcDriver, System::nanoTime);
+    }
+
+    /**
+     * Creates a data source with the given clock.
+     *
+     * @param optionsReader the conninfo reader
+     * @param sysContext    the system context to read
+     * @param props         the initial properties with which to seed the
+     *                      reader
+     * @param jdbcDriver    the driver to connect with, or null to use
+     *                      DriverManager
+     * @param nanoClock     source of the current time, in nanoseconds
+     */
+    PqConninfoDataSource(final PqConninfoOptionsReader optionsReader,
+                         final Context sysContext,
+                         final Properties props,
+                         final Driver jdbcDriver,
+                         final LongSupplier nanoClock) {
+        this.reader = optionsReader;
+        this.context = sysContext;
+        this.opts = EnumMapConninfoReader.optsFrom(props);
+        this.driver = jdbcDriver;
+        this.clock = nanoClock;
+    }
+
+    /**
+     * Sets the minimum time between checks of the context's fingerprint.
+     * Zero checks it on every connection; Long.MAX_VALUE never checks it,
+     * relying on file change notifications and reported authentication
+     * failures.
+     *
+     * @param interval the interval
+     * @param unit     the time unit of interval
+     */
+    public void setFingerprintCheckInterval(final long interval,
+                                            final TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException(
+                    "interval must not be negative");
+        }
+        this.fingerprintCheckIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Returns the JDBC connection parameters connections are currently made
+     * with, resolving them if needed.
+     *
+     * @return the JDBC connection parameters
+     */
+    public JdbcConnectionParameters getParameters() {
+        return current().params;
+    }
+
+    /**
+     * Reports that a connection made with the current parameters failed to
+     * authenticate, so the next connection re-resolves them.
+     */
+    public void reportAuthenticationFailure() {
+        resolved = null;
+    }
+
+    /**
+     * Discards the resolved parameters if they were read from the given
+     * file.
+     *
+     * @param filename the name of the changed file
+     */
+    @Override
+    public void fileChanged(final String filename) {
+        Resolved r = resolved;
+        if (r != null
+                && r.fingerprint.getFilenames().contains(filename)) {
+            resolved = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null, false);
+    }
+
+    /**
+     * Attempts to establish a connection as the given user, overriding the
+     * user and password of the resolved parameters.
+     *
+     * @param username the database user
+     * @param password the user's password
+     * @return a connection
+     * @throws SQLException if a database access error occurs
+     */
+    @Override
+    public Connection getConnection(final String username,
+                                    final String password)
+            throws SQLException {
+        return getConnection(username, password, true);
+    }
+
+    private Connection getConnection(final String username,
+                                     final String password,
+                                     final boolean override)
+            throws SQLException {
+        Resolved r = current();
+        try {
+            return connect(r, username, password, override);
+        } catch (SQLException e) {
+            // Re-resolving can't fix the caller's own credentials.
+            if (override || !isAuthenticationFailure(e)) {
+                throw e;
+            }
+            Resolved fresh = refresh(r);
+            if (fresh.params.equals(r.params)) {
+                throw e;
+            }
+            final Logger logger
+                    = LoggerFactory.getLogger(PqConninfoDataSource.class);
+            logger.debug("Authentication failed, retrying with "
+                    + "re-resolved connection parameters");
+            return connect(fresh, username, password, override);
+        }
+    }
+
+    private Connection connect(final Resolved r,
+                               final String username,
+                               final String password,
+                               final boolean override)
+            throws SQLException {
+        Properties info = r.params.getInfo();
+        if (override) {
+            setOrRemove(info, JdbcConnectionParameter.USER.keyword,
+                    username);
+            setOrRemove(info, JdbcConnectionParameter.PASSWORD.keyword,
+                    password);
+        }
+        int timeout = loginTimeout;
+        if (timeout > 0) {
+            info.setProperty(LOGIN_TIMEOUT, Integer.toString(timeout));
+        }
+        String url = r.params.getUrl();
+
+        if (driver == null) {
+            return DriverManager.getConnection(url, info);
+        }
+        Connection conn = driver.connect(url, info);
+        if (conn == null) {
+            throw new SQLException("No suitable driver found for " + url,
+                    CONNECTION_FAILURE_STATE);
+        }
+        return conn;
+    }
+
+    private static void setOrRemove(final Properties info, final String key,
+                                    final String value) {
+        if (value == null) {
+            info.remove(key);
+        } else {
+            info.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Returns true if the given exception, or one chained to it, reports an
+     * authentication failure.
+     *
+     * @param e the exception
+     * @return true if authentication failed
+     */
+    static boolean isAuthenticationFailure(final SQLException e) {
+        for (SQLException next = e; next != null;
+             next = next.getNextException()) {
+            String state = next.getSQLState();
+            if (state != null
+                    && state.startsWith(INVALID_AUTHORIZATION_CLASS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the resolved parameters, resolving them again if they've been
+     * discarded or the context's fingerprint has changed. The fingerprint
+     * is only taken if it hasn't been checked within the fingerprint check
+     * interval.
+     *
+     * @return the resolved parameters
+     */
+    private Resolved current() {
+        Resolved r = resolved;
+        if (r == null) {
+            return refresh(null);
+        }
+        long now = clock.getAsLong();
+        if (now - r.checkedAt < fingerprintCheckIntervalNanos) {
+            return r;
+        }
+        if (r.fingerprint.equals(SourceFingerprint.of(context))) {
+            r.checkedAt = now;
+            return r;
+        }
+        return refresh(r);
+    }
+
+    /**
+     * Resolves the parameters again, unless another thread already has
+     * since the given parameters were read. Anything the reader has cached
+     * from the context is discarded first, so a caching reader doesn't
+     * answer with the parameters being replaced.
+     *
+     * @param stale the parameters found to be out of date, or null
+     * @return the resolved parameters
+     */
+    private synchronized Resolved refresh(final Resolved stale) {
+        Resolved r = resolved;
+        if (r != null && r != stale) {
+            return r;
+        }
+        long now = clock.getAsLong();
+        reader.invalidate(context);
+        SourceFingerprint fingerprint = SourceFingerprint.of(context);
+        JdbcConnectionParameters params
+                = JdbcConnectionParametersReader.read(reader, context, opts);
+        r = new Resolved(params, fingerprint, now);
+        resolved = r;
+        return r;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setLogWriter(final PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    /**
+     * Sets the login timeout, passed to the driver as the loginTimeout
+     * property. Zero, the default, leaves the driver's default in place.
+     *
+     * @param seconds the login timeout, in seconds
+     */
+    @Override
+    public void setLoginTimeout(final int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public java.util.logging.Logger getParentLogger()
+            throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T> T unwrap(final Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isWrapperFor(final Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Connection parameters along with the fingerprint of the context they
+     * were read from.
+     */
+    private static final class Resolved {
+        /**
+         * The connection parameters.
+         */
+        private final JdbcConnectionParameters params;
+
+        /**
+         * The fingerprint of the context the parameters were read from.
+         */
+        private final SourceFingerprint fingerprint;
+
+        /**
+         * When the fingerprint was last found unchanged, in nanoseconds.
+         */
+        private volatile long checkedAt;
+
+        /**
+         * Creates resolved parameters.
+         *
+         * @param parameters the connection parameters
+         * @param sources    the fingerprint of the context
+         * @param readAt     when the context was read, in nanoseconds
+         */
+        Resolved(final JdbcConnectionParameters parameters,
+                 final SourceFingerprint sources,
+                 final long readAt) {
+            this.params = parameters;
+            this.fingerprint = sources;
+            this.checkedAt = readAt;
+        }
+    }
+}
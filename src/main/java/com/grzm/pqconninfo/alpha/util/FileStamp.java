@@ -0,0 +1,111 @@
+package com.grzm.pqconninfo.alpha.util;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The file attributes used to detect whether a file has changed: the file
+ * key, size, modification time and, on POSIX systems, the permissions
+ * (which matter for passfiles). The attributes are read with a single
+ * attribute read.
+ */
+public final class FileStamp {
+
+    /**
+     * Whether the default file system supports POSIX file attributes.
+     */
+    private static final boolean IS_POSIX = FileSystems.getDefault()
+            .supportedFileAttributeViews().contains("posix");
+
+    /**
+     * The file key (such as the device and inode), or null if the file
+     * system doesn't provide one.
+     */
+    private final Object fileKey;
+
+    /**
+     * The file size, in bytes.
+     */
+    private final long size;
+
+    /**
+     * The last modification time.
+     */
+    private final FileTime lastModifiedTime;
+
+    /**
+     * The POSIX permissions, or null on non-POSIX file systems.
+     */
+    private final Set<PosixFilePermission> permissions;
+
+    /**
+     * Creates a stamp from the given file attributes.
+     *
+     * @param attrs the basic file attributes
+     * @param perms the POSIX permissions, or null if not available
+     */
+    private FileStamp(final BasicFileAttributes attrs,
+                      final Set<PosixFilePermission> perms) {
+        this.fileKey = attrs.fileKey();
+        this.size = attrs.size();
+        this.lastModifiedTime = attrs.lastModifiedTime();
+        this.permissions = perms;
+    }
+
+    /**
+     * Reads the attributes of the given file.
+     *
+     * @param filename the name of the file
+     * @return the file attributes, or null if they can't be read
+     */
+    public static FileStamp read(final String filename) {
+        if (filename == null) {
+            return null;
+        }
+        try {
+            Path path = Paths.get(filename);
+            if (IS_POSIX) {
+                PosixFileAttributes attrs = Files.readAttributes(
+                        path, PosixFileAttributes.class);
+                return new FileStamp(attrs, attrs.permissions());
+            }
+            return new FileStamp(Files.readAttributes(
+                    path, BasicFileAttributes.class), null);
+        } catch (IOException | InvalidPathException
+                | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FileStamp that = (FileStamp) o;
+        return size == that.size
+                && Objects.equals(fileKey, that.fileKey)
+                && lastModifiedTime.equals(that.lastModifiedTime)
+                && Objects.equals(permissions, that.permissions);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileKey, size, lastModifiedTime, permissions);
+    }
+}
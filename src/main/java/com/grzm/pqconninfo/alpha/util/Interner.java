@@ -0,0 +1,52 @@
+package com.grzm.pqconninfo.alpha.util;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Maps equal instances to a single canonical instance, as String.intern
+ * does for strings.
+ *
+ * Canonical instances are held weakly, so an instance no longer referenced
+ * elsewhere can be collected, after which the next equal instance interned
+ * becomes canonical. Instances must be immutable, with equals and hashCode
+ * consistent for their lifetime.
+ *
+ * @param <T> the type of the interned instances
+ */
+public final class Interner<T> {
+
+    /**
+     * The canonical instances. The value refers to the key weakly, so the
+     * entry doesn't keep its own key reachable.
+     */
+    private final WeakHashMap<T, WeakReference<T>> instances
+            = new WeakHashMap<>();
+
+    /**
+     * Returns the canonical instance equal to the given instance, making
+     * the given instance canonical if there's none.
+     *
+     * @param instance the instance to intern
+     * @return the canonical instance
+     */
+    public synchronized T intern(final T instance) {
+        WeakReference<T> ref = instances.get(instance);
+        T canonical = ref == null ? null : ref.get();
+        if (canonical == null) {
+            instances.put(instance, new WeakReference<>(instance));
+            canonical = instance;
+        }
+        return canonical;
+    }
+
+    /**
+     * Returns the number of canonical instances, including any that have
+     * been collected but not yet expunged.
+     *
+     * @return the number of canonical instances
+     */
+    public synchronized int size() {
+        return instances.size();
+    }
+}
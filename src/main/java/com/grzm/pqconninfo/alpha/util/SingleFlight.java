@@ -0,0 +1,79 @@
+package com.grzm.pqconninfo.alpha.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent computations of the same key: while a computation
+ * for a key is in flight, other callers asking for the same key wait for
+ * its result instead of starting their own.
+ *
+ * Coordination is per key, so computations for different keys don't block
+ * each other. Results aren't kept once the computation completes.
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ */
+public final class SingleFlight<K, V> {
+
+    /**
+     * The computations currently in flight.
+     */
+    private final ConcurrentHashMap<K, FutureTask<V>> calls
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the result of computing the given key, sharing the
+     * computation with any concurrent callers for the same key.
+     *
+     * If the computation throws, every caller waiting on it receives the
+     * exception. A waiting caller that is interrupted stops waiting and
+     * computes the result itself, leaving its interrupt status set.
+     *
+     * @param key      the key
+     * @param compute  computes the result for the key
+     * @return the result
+     */
+    public V execute(final K key, final Supplier<V> compute) {
+        FutureTask<V> task = calls.get(key);
+        if (task == null) {
+            FutureTask<V> newTask = new FutureTask<>(compute::get);
+            task = calls.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+                try {
+                    newTask.run();
+                } finally {
+                    calls.remove(key, newTask);
+                }
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return compute.get();
+        }
+    }
+
+    /**
+     * Returns the number of computations currently in flight.
+     *
+     * @return the number of computations in flight
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+}
@@ -0,0 +1,122 @@
+package com.grzm.pqconninfo.alpha.util;
+
+/**
+ * A bounded pool of canonical strings, used while parsing a file so that
+ * repeated values (host names, ports, certificate paths, and the like) are
+ * stored once in what's built from it.
+ *
+ * The pool is a fixed-size, direct-mapped table: each string has a single
+ * slot, chosen by its hash code, and a string that hashes to an occupied
+ * slot replaces the string in it. The pool never grows, and a miss costs no
+ * more than the allocation it would have made anyway.
+ *
+ * A pool is meant to be scoped to a single parse and isn't thread-safe.
+ */
+public final class StringPool {
+
+    /**
+     * The default number of slots.
+     */
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * The largest number of slots.
+     */
+    private static final int MAX_CAPACITY = 65536;
+
+    /**
+     * The multiplier of the String.hashCode polynomial.
+     */
+    private static final int HASH_MULTIPLIER = 31;
+
+    /**
+     * The shift folding the high bits of a hash into the low bits, which
+     * choose the slot.
+     */
+    private static final int HASH_SPREAD_SHIFT = 16;
+
+    /**
+     * The pooled strings, indexed by slot.
+     */
+    private final String[] table;
+
+    /**
+     * The mask selecting a slot from a hash, one less than the number of
+     * slots.
+     */
+    private final int mask;
+
+    /**
+     * Creates a pool with the default number of slots.
+     */
+    public StringPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a pool with at least the given number of slots, rounded up to
+     * a power of two and capped at 65536.
+     *
+     * @param capacity the number of slots
+     */
+    public StringPool(final int capacity) {
+        int size = 1;
+        while (size < capacity && size < MAX_CAPACITY) {
+            size <<= 1;
+        }
+        this.table = new String[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the pooled string equal to the given string, pooling the given
+     * string if there's none.
+     *
+     * @param s the string, or null
+     * @return the pooled string, or null if s is null
+     */
+    public String get(final String s) {
+        if (s == null) {
+            return null;
+        }
+        int i = slot(s.hashCode());
+        String pooled = table[i];
+        if (s.equals(pooled)) {
+            return pooled;
+        }
+        table[i] = s;
+        return s;
+    }
+
+    /**
+     * Returns the pooled string equal to the given range of the given
+     * string, pooling a substring if there's none. A pooled string is
+     * returned without allocating a substring.
+     *
+     * @param s     the string
+     * @param start the start of the range, inclusive
+     * @param end   the end of the range, exclusive
+     * @return the pooled string
+     */
+    public String get(final String s, final int start, final int end) {
+        // The same hash as String.hashCode, so both get methods share slots.
+        int h = 0;
+        for (int j = start; j < end; j++) {
+            h = HASH_MULTIPLIER * h + s.charAt(j);
+        }
+        int i = slot(h);
+        String pooled = table[i];
+        int length = end - start;
+        if (pooled != null && pooled.length() == length
+                && pooled.regionMatches(0, s, start, length)) {
+            return pooled;
+        }
+        String value = s.substring(start, end);
+        table[i] = value;
+        return value;
+    }
+
+    private int slot(final int hash) {
+        return (hash ^ (hash >>> HASH_SPREAD_SHIFT)) & mask;
+    }
+}
@@ -1,9 +1,12 @@
 package com.grzm.pqconninfo.alpha.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Miscellaneous, catch-all functions for which I haven't found a more
@@ -11,6 +14,21 @@ import java.io.InputStream;
  */
 public final class Util {
 
+    /**
+     * The radix of the hex digits of percent-encoded octets.
+     */
+    private static final int HEX_RADIX = 16;
+
+    /**
+     * The length of a percent-encoded octet: '%' and two hex digits.
+     */
+    private static final int PERCENT_ENCODED_LENGTH = 3;
+
+    /**
+     * The size of the buffer readAllBytes reads with.
+     */
+    private static final int READ_BUFFER_SIZE = 8192;
+
     /**
      * Privatize default constructor.
      */
@@ -64,4 +82,127 @@ public final class Util {
     public static boolean isNullOrEmpty(final String s) {
         return (s == null) || s.isEmpty();
     }
+
+    /**
+     * Reads the remaining contents of the given input stream, closing it
+     * when done.
+     *
+     * @param is The input stream to read
+     * @return The contents of the input stream
+     * @throws IOException Error reading the input stream.
+     */
+    public static byte[] readAllBytes(final InputStream is)
+            throws IOException {
+        try (InputStream in = is) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[READ_BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Decodes the percent-encoded (%XX) octets of the given range of the
+     * given string as UTF-8. If plusAsSpace is set, '+' decodes to a space,
+     * as in application/x-www-form-urlencoded values; otherwise it's
+     * literal, as libpq treats it.
+     *
+     * A range with nothing to decode is returned as a substring.
+     *
+     * @param s           The string to decode
+     * @param start       The start of the range, inclusive
+     * @param end         The end of the range, exclusive
+     * @param plusAsSpace Whether '+' decodes to a space
+     * @return The decoded string
+     * @throws IllegalArgumentException if a percent-encoded token is
+     *                                  malformed or decodes to a zero byte
+     */
+    public static String percentDecode(final String s, final int start,
+                                       final int end,
+                                       final boolean plusAsSpace) {
+        int i = start;
+        while (i < end) {
+            char c = s.charAt(i);
+            if (c == '%' || (plusAsSpace && c == '+')) {
+                break;
+            }
+            i++;
+        }
+        if (i == end) {
+            return s.substring(start, end);
+        }
+
+        byte[] bytes = null;
+        int len = 0;
+        StringBuilder sb = new StringBuilder(end - start);
+        sb.append(s, start, i);
+        while (i < end) {
+            char c = s.charAt(i);
+            if (c == '%') {
+                int hi = i + 2 < end ? hexDigit(s.charAt(i + 1)) : -1;
+                int lo = hi < 0 ? -1 : hexDigit(s.charAt(i + 2));
+                if (lo < 0) {
+                    throw new IllegalArgumentException(String.format(
+                            "invalid percent-encoded token: \"%s\"",
+                            s.substring(start, end)));
+                }
+                int b = hi * HEX_RADIX + lo;
+                if (b == 0) {
+                    throw new IllegalArgumentException(String.format(
+                            "forbidden value %%00 in percent-encoded value:"
+                                    + " \"%s\"", s.substring(start, end)));
+                }
+                if (bytes == null) {
+                    bytes = new byte[(end - i) / PERCENT_ENCODED_LENGTH];
+                }
+                bytes[len++] = (byte) b;
+                i += PERCENT_ENCODED_LENGTH;
+                continue;
+            }
+            if (len > 0) {
+                sb.append(new String(bytes, 0, len, StandardCharsets.UTF_8));
+                len = 0;
+            }
+            sb.append(plusAsSpace && c == '+' ? ' ' : c);
+            i++;
+        }
+        if (len > 0) {
+            sb.append(new String(bytes, 0, len, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the value of the given ASCII hex digit ([0-9A-Fa-f]), or -1 if
+     * it isn't one. Unlike Character.digit, non-ASCII digits (such as
+     * fullwidth digits) aren't hex digits.
+     *
+     * @param c the character
+     * @return the value of the hex digit, or -1
+     */
+    private static int hexDigit(final char c) {
+        if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'F')
+                || (c >= 'a' && c <= 'f')) {
+            return Character.digit(c, HEX_RADIX);
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes the percent-encoded (%XX) octets of the given string as UTF-8.
+     *
+     * @param s           The string to decode
+     * @param plusAsSpace Whether '+' decodes to a space
+     * @return The decoded string
+     * @throws IllegalArgumentException if a percent-encoded token is
+     *                                  malformed or decodes to a zero byte
+     * @see #percentDecode(String, int, int, boolean)
+     */
+    public static String percentDecode(final String s,
+                                       final boolean plusAsSpace) {
+        return percentDecode(s, 0, s.length(), plusAsSpace);
+    }
 }
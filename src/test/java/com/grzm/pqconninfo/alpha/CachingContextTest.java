@@ -0,0 +1,136 @@
+package com.grzm.pqconninfo.alpha;
+
+import com.grzm.pqconninfo.alpha.util.Util;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingContextTest {
+
+    static class CountingContext extends BasicTestContext {
+        final AtomicInteger opens = new AtomicInteger();
+
+        CountingContext(HashMap<String, String> env) {
+            super(env);
+        }
+
+        @Override
+        public InputStream getEnvPassfileInputStream(String envPassfile) {
+            opens.incrementAndGet();
+            return Util.getFileInputStream(envPassfile);
+        }
+
+        @Override
+        public InputStream getEnvServiceFileInputStream() {
+            opens.incrementAndGet();
+            return Util.getFileInputStream(getenv(EnvVars.PGSERVICEFILE));
+        }
+    }
+
+    static String contents(InputStream is) throws IOException {
+        return new String(Util.readAllBytes(is), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void cachesUnchangedFiles(@TempDir Path tempDir) throws IOException {
+        Path passfile = tempDir.resolve("pgpass");
+        Files.write(passfile, "*:*:*:*:first".getBytes(StandardCharsets.UTF_8));
+
+        CountingContext delegate = new CountingContext(new HashMap<>());
+        CachingContext context = new CachingContext(delegate);
+
+        assertEquals("*:*:*:*:first",
+                contents(context.getEnvPassfileInputStream(passfile.toString())));
+        assertEquals("*:*:*:*:first",
+                contents(context.getEnvPassfileInputStream(passfile.toString())));
+        assertEquals(1, delegate.opens.get());
+
+        Files.write(passfile, "*:*:*:*:second-password".getBytes(StandardCharsets.UTF_8));
+        assertEquals("*:*:*:*:second-password",
+                contents(context.getEnvPassfileInputStream(passfile.toString())));
+        assertEquals(2, delegate.opens.get());
+
+        context.invalidate(passfile.toString());
+        assertEquals("*:*:*:*:second-password",
+                contents(context.getEnvPassfileInputStream(passfile.toString())));
+        assertEquals(3, delegate.opens.get());
+    }
+
+    @Test
+    void passesThroughMissingFiles(@TempDir Path tempDir) {
+        CountingContext delegate = new CountingContext(new HashMap<>());
+        CachingContext context = new CachingContext(delegate);
+        String missing = tempDir.resolve("no-such-file").toString();
+
+        assertNull(context.getEnvPassfileInputStream(missing));
+        assertNull(context.getEnvPassfileInputStream(missing));
+        assertEquals(2, delegate.opens.get());
+    }
+
+    @Test
+    void passesThroughContextsWithoutFilenames() {
+        BasicTestContext delegate = new BasicTestContext();
+        delegate.setUserServiceFileContents("[some-service]\nport=1234\n");
+        CachingContext context = new CachingContext(delegate);
+
+        PqConninfo conninfo = PqConninfoReader.read(context, new Properties() {{
+            setProperty("service", "some-service");
+        }});
+        assertEquals("1234", conninfo.get(PqConninfoOption.PORT));
+    }
+
+    @Test
+    void parsesIndexesOncePerChange(@TempDir Path tempDir) throws IOException {
+        Path passfile = tempDir.resolve("pgpass");
+        Path serviceFile = tempDir.resolve("pg_service.conf");
+        Files.write(passfile, "some-host:*:*:*:first".getBytes(StandardCharsets.UTF_8));
+        Files.write(serviceFile, "[some-service]\nhost=some-host\n"
+                .getBytes(StandardCharsets.UTF_8));
+
+        CountingContext delegate = new CountingContext(new HashMap<String, String>() {{
+            put("PGPASSFILE", passfile.toString());
+            put("PGSERVICEFILE", serviceFile.toString());
+        }});
+        CachingContext context = new CachingContext(delegate);
+        Properties props = new Properties() {{
+            setProperty("service", "some-service");
+            setProperty("dbname", "some-dbname");
+            setProperty("user", "some-user");
+        }};
+
+        PqConninfo conninfo = PqConninfoReader.read(context, props);
+        assertEquals("some-host", conninfo.get(PqConninfoOption.HOST));
+        assertEquals("first", conninfo.get(PqConninfoOption.PASSWORD));
+        assertEquals(conninfo, PqConninfoReader.read(context, props));
+        assertEquals(2, delegate.opens.get());
+        assertSame(context.getEnvServiceCatalog(), context.getEnvServiceCatalog());
+        assertSame(context.getEnvCompiledPassfile(passfile.toString()),
+                context.getEnvCompiledPassfile(passfile.toString()));
+
+        Files.write(passfile, "some-host:*:*:*:second-password"
+                .getBytes(StandardCharsets.UTF_8));
+        assertEquals("second-password",
+                PqConninfoReader.read(context, props).get(PqConninfoOption.PASSWORD));
+        assertEquals(3, delegate.opens.get());
+    }
+
+    @Test
+    void missingFilesHaveNoIndex(@TempDir Path tempDir) {
+        CountingContext delegate = new CountingContext(new HashMap<>());
+        CachingContext context = new CachingContext(delegate);
+
+        assertNull(context.getEnvCompiledPassfile(
+                tempDir.resolve("no-such-file").toString()));
+        assertNull(context.getUserServiceCatalog());
+    }
+}
@@ -0,0 +1,128 @@
+package com.grzm.pqconninfo.alpha;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class CompiledPassfileTest {
+
+    static CompiledPassfile compile(String contents) {
+        return CompiledPassfile.from(new ByteArrayInputStream(
+                contents.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static Stream<Arguments> passfileProvider() {
+        String contents = "# comment:line:for:some:thing\n"
+                + "h1:5432:db:alice:exact-first\n"
+                + "*:5432:db:bob:wildcard-bob\n"
+                + "h1:5432:db:bob:exact-bob\n"
+                + "h1:5432:db:alice:exact-second\n"
+                + "h1:5432:db:carol\n"
+                + "*:*:*:carol:carol-wildcard\n"
+                + "localhost:5432:db:dave:local-dave\n"
+                + "h2:5433:db:erin:pass\\:word\n"
+                + "*:*:*:*:fallback\n";
+        return Stream.of(
+                arguments(contents, "h1", "5432", "db", "alice", "exact-first"),
+                arguments(contents, "h1", "5432", "db", "bob", "wildcard-bob"),
+                arguments(contents, "h1", "5432", "db", "carol", "carol-wildcard"),
+                arguments(contents, null, null, "db", "dave", "local-dave"),
+                arguments(contents, "/tmp", "", "db", "dave", "local-dave"),
+                arguments(contents, "h2", "5433", "db", "erin", "pass:word"),
+                arguments(contents, "h3", "5432", "db", "frank", "fallback"),
+                arguments(contents, "h3", "5432", null, "frank", null),
+                arguments("h1:5432:db:alice:a\n", "h1", "5432", "db", "bob", null)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("passfileProvider")
+    void getPassword(String contents, String host, String port, String dbname,
+                     String user, String expected) {
+        assertEquals(expected, compile(contents).getPassword(host, port, dbname, user));
+        assertEquals(expected, Passfile.getPassword(host, port, dbname, user,
+                new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void getPasswords() {
+        String contents = "h1:5432:db:alice:first\n"
+                + "*:5433:db:alice:second\n";
+        List<PqEndpoint> endpoints = PqEndpoint.from("h1,h2,h3", null, "5432,5433,5432");
+        String[] expected = Passfile.getPasswords(endpoints, "db", "alice",
+                new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals(new String[]{"first", "second", null}, expected);
+        assertArrayEquals(expected, compile(contents).getPasswords(endpoints, "db", "alice"));
+    }
+
+    interface PasswordLookup {
+        String getPassword(String host, String port, String dbname, String user);
+    }
+
+    /**
+     * Generates a random passfile of the given number of lines, mixing
+     * wildcards, repeated keys, lines without a password, and a few users
+     * that only occur once.
+     */
+    static String randomPassfile(Random random, int lineCount) {
+        String[] hosts = {"h1", "h2", "h3", "*"};
+        String[] ports = {"5432", "5433", "*"};
+        String[] names = {"a", "b", "c", "*"};
+
+        StringBuilder sb = new StringBuilder();
+        for (int line = 0; line < lineCount; line++) {
+            sb.append(hosts[random.nextInt(hosts.length)]).append(':')
+                    .append(ports[random.nextInt(ports.length)]).append(':')
+                    .append(names[random.nextInt(names.length)]).append(':')
+                    .append(names[random.nextInt(names.length)]);
+            if (random.nextInt(20) == 0) {
+                sb.append("-").append(line);
+            }
+            if (random.nextInt(10) > 0) {
+                sb.append(':').append("pw-").append(line);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Asserts that the given lookup finds the same passwords in the given
+     * passfile contents as Passfile.getPassword does.
+     */
+    static void assertMatchesLinearScan(String contents, PasswordLookup lookup) {
+        for (String host : new String[]{"h1", "h2", "h3", "h4"}) {
+            for (String port : new String[]{"5432", "5433"}) {
+                for (String dbname : new String[]{"a", "b", "c", "d"}) {
+                    for (String user : new String[]{"a", "b", "c", "d", "a-17"}) {
+                        String expected = Passfile.getPassword(host, port, dbname, user,
+                                new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)));
+                        assertEquals(expected, lookup.getPassword(host, port, dbname, user),
+                                contents);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesLinearScan() {
+        Random random = new Random(42);
+        for (int file = 0; file < 20; file++) {
+            String contents = randomPassfile(random, 60);
+            CompiledPassfile compiled = compile(contents);
+            assertMatchesLinearScan(contents, compiled::getPassword);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.grzm.pqconninfo.alpha;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextFileWatcherTest {
+
+    static void write(Path path, String contents) throws IOException {
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void notifiesWhenWatchedFilesChange(@TempDir Path tempDir) throws Exception {
+        Path passfile = tempDir.resolve("pgpass");
+        Path serviceFile = tempDir.resolve("pg_service.conf");
+        write(passfile, "*:*:*:*:first");
+
+        BasicTestContext context = new BasicTestContext(new HashMap<String, String>() {{
+            put("PGPASSFILE", passfile.toString());
+            put("PGSERVICEFILE", serviceFile.toString());
+        }});
+
+        BlockingQueue<String> changed = new LinkedBlockingQueue<>();
+        try (ContextFileWatcher watcher = new ContextFileWatcher(context)) {
+            watcher.addListener(changed::add).start();
+            assertEquals(1, watcher.getWatchedDirectories().size());
+
+            write(tempDir.resolve("unrelated"), "ignored");
+            write(passfile, "*:*:*:*:second");
+            assertEquals(passfile.toString(), changed.poll(10, TimeUnit.SECONDS));
+
+            Path tmp = tempDir.resolve("pg_service.conf.tmp");
+            write(tmp, "[some-service]\nport=1234\n");
+            Files.move(tmp, serviceFile, StandardCopyOption.ATOMIC_MOVE);
+            String next = changed.poll(10, TimeUnit.SECONDS);
+            while (passfile.toString().equals(next)) {
+                next = changed.poll(10, TimeUnit.SECONDS);
+            }
+            assertEquals(serviceFile.toString(), next);
+        }
+    }
+
+    @Test
+    void cachingContextInvalidatedByWatcher(@TempDir Path tempDir) throws Exception {
+        Path passfile = tempDir.resolve("pgpass");
+        write(passfile, "*:*:*:*:first");
+        CachingContextTest.CountingContext delegate
+                = new CachingContextTest.CountingContext(new HashMap<>());
+        CachingContext context = new CachingContext(delegate, false);
+
+        assertNotNull(context.getEnvPassfileInputStream(passfile.toString()));
+        write(passfile, "*:*:*:*:second");
+        // Not verifying on read: the stale contents are served until invalidated.
+        assertEquals("*:*:*:*:first", CachingContextTest.contents(
+                context.getEnvPassfileInputStream(passfile.toString())));
+        assertEquals(1, delegate.opens.get());
+
+        context.fileChanged(passfile.toString());
+        assertEquals("*:*:*:*:second", CachingContextTest.contents(
+                context.getEnvPassfileInputStream(passfile.toString())));
+        assertEquals(2, delegate.opens.get());
+    }
+}
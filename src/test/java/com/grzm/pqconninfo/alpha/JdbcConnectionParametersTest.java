@@ -1,12 +1,15 @@
 package com.grzm.pqconninfo.alpha;
 
+import com.grzm.pqconninfo.alpha.impl.EnumMapConninfoReader;
 import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParameters;
+import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParametersReader;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Properties;
 import java.util.stream.Stream;
 
@@ -38,6 +41,65 @@ class JdbcConnectionParametersTest {
 
     }
 
+    @Test
+    void mismatchedPortsAreMalformed() {
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+            put(PqConninfoOption.HOST, "host-a,host-b,host-c");
+            put(PqConninfoOption.PORT, "5432,5433");
+            put(PqConninfoOption.DBNAME, "some-dbname");
+            put(PqConninfoOption.USER, "some-user");
+        }};
+        Context context = new BasicTestContext(new HashMap<>());
+
+        MalformedConninfoException e = assertThrows(MalformedConninfoException.class,
+                () -> JdbcConnectionParametersReader.read(new EnumMapConninfoReader(), context, opts));
+        assertEquals("could not match 2 port numbers to 3 hosts", e.getMessage());
+        assertThrows(MalformedConninfoException.class,
+                () -> JdbcConnectionParameters.from(PqConninfo.from(opts)));
+    }
+
+    @Test
+    void intern() {
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+            put(PqConninfoOption.HOST, "intern-host");
+            put(PqConninfoOption.USER, "alice");
+        }};
+        JdbcConnectionParameters canonical = JdbcConnectionParameters.from(PqConninfo.from(opts)).intern();
+        JdbcConnectionParameters other = JdbcConnectionParameters.from(PqConninfo.from(opts));
+        assertNotSame(canonical, other);
+        assertSame(canonical, other.intern());
+        assertSame(canonical.getUrl(), other.intern().getUrl());
+
+        opts.put(PqConninfoOption.USER, "bob");
+        assertNotSame(canonical, JdbcConnectionParameters.from(PqConninfo.from(opts)).intern());
+    }
+
+    @Test
+    void derivedValuesAreComputedOnce() {
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+            put(PqConninfoOption.HOST, "some-host");
+            put(PqConninfoOption.USER, "alice");
+            put(PqConninfoOption.PASSWORD, "super-secret");
+        }};
+        JdbcConnectionParameters params = JdbcConnectionParameters.from(PqConninfo.from(opts));
+
+        assertSame(params.getUrl(), params.getUrl());
+        assertSame(params.getUrlWithQueryString(), params.getUrlWithQueryString());
+
+        Properties info = params.getInfo();
+        assertEquals(info, params.getInfo());
+        assertNotSame(info, params.getInfo());
+        info.setProperty("user", "mallory");
+        assertEquals("alice", params.getInfo().getProperty("user"));
+
+        Properties props = params.toProperties();
+        props.clear();
+        assertEquals("some-host", params.toProperties().getProperty("host"));
+
+        assertEquals(params.hashCode(), params.hashCode());
+        assertEquals(params.hashCode(), JdbcConnectionParameters.from(PqConninfo.from(opts)).hashCode());
+    }
+
     static Stream<Arguments> optsForPropertiesProvider() {
         return Stream.of(
                 arguments(
@@ -114,6 +176,42 @@ class JdbcConnectionParametersTest {
                             setProperty("dbname", "some-dbname");
                             setProperty("user", "some-user");
                             setProperty("password", "some-password");
+                        }}),
+
+                arguments(
+                        new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+                            put(PqConninfoOption.HOST, "host-a,host-b");
+                            put(PqConninfoOption.PORT, "5432,5433");
+                            put(PqConninfoOption.DBNAME, "some-dbname");
+                            put(PqConninfoOption.USER, "some-user");
+                        }},
+                        "jdbc:postgresql://host-a:5432,host-b:5433/some-dbname",
+                        new Properties() {{
+                            setProperty("user", "some-user");
+                        }},
+                        "jdbc:postgresql://host-a:5432,host-b:5433/some-dbname?user=some-user",
+                        new Properties() {{
+                            setProperty("host", "host-a,host-b");
+                            setProperty("port", "5432,5433");
+                            setProperty("dbname", "some-dbname");
+                            setProperty("user", "some-user");
+                        }}),
+
+                arguments(
+                        new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+                            put(PqConninfoOption.HOST, "host-a,,host-c");
+                            put(PqConninfoOption.PORT, "6543");
+                            put(PqConninfoOption.USER, "some-user");
+                        }},
+                        "jdbc:postgresql://host-a:6543,localhost:6543,host-c:6543/",
+                        new Properties() {{
+                            setProperty("user", "some-user");
+                        }},
+                        "jdbc:postgresql://host-a:6543,localhost:6543,host-c:6543/?user=some-user",
+                        new Properties() {{
+                            setProperty("host", "host-a,localhost,host-c");
+                            setProperty("port", "6543,6543,6543");
+                            setProperty("user", "some-user");
                         }})
         );
     }
@@ -0,0 +1,93 @@
+package com.grzm.pqconninfo.alpha;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static com.grzm.pqconninfo.alpha.CompiledPassfileTest.randomPassfile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PackedPassfileTest {
+
+    static PackedPassfile pack(String contents) {
+        return PackedPassfile.from(new ByteArrayInputStream(
+                contents.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static Stream<Arguments> passfileProvider() {
+        return CompiledPassfileTest.passfileProvider();
+    }
+
+    @ParameterizedTest
+    @MethodSource("passfileProvider")
+    void getPassword(String contents, String host, String port, String dbname,
+                     String user, String expected) {
+        assertEquals(expected, pack(contents).getPassword(host, port, dbname, user));
+    }
+
+    @Test
+    void sizeCountsFirstEntryOfEachKey() {
+        PackedPassfile packed = pack("h1:5432:db:alice:first\n"
+                + "h1:5432:db:alice:second\n"
+                + "*:5432:db:alice:wildcard\n"
+                + "h1:5432:db:bob\n"
+                + "malformed\n"
+                + "h2:5432:db:alice:other\n");
+        assertEquals(3, packed.size());
+        assertEquals("first", packed.getPassword("h1", "5432", "db", "alice"));
+        assertEquals(0, pack("").size());
+        assertEquals(null, pack("").getPassword("h1", "5432", "db", "alice"));
+    }
+
+    @Test
+    void escapedValues() {
+        PackedPassfile packed = pack("some-host:5432:some-db:some-user:pa\\:ss\\\\word\n"
+                + "h\\:1:5432:db:alice:escaped-host\n");
+        assertEquals("pa:ss\\word", packed.getPassword("some-host", "5432", "some-db", "some-user"));
+        assertEquals("escaped-host", packed.getPassword("h\\:1", "5432", "db", "alice"));
+
+        EnumMap<PqConninfoOption, String> conninfo = new EnumMap<>(PqConninfoOption.class);
+        conninfo.put(PqConninfoOption.HOST, "some-host");
+        conninfo.put(PqConninfoOption.DBNAME, "some-db");
+        conninfo.put(PqConninfoOption.USER, "some-user");
+        assertEquals("pa:ss\\word", packed.getPassword(conninfo));
+    }
+
+    @Test
+    void matchesLinearScan() {
+        Random random = new Random(7);
+        for (int file = 0; file < 20; file++) {
+            // Enough lines to grow the record buffer and the hash table.
+            String contents = randomPassfile(random, 3000);
+            PackedPassfile packed = pack(contents);
+            CompiledPassfile compiled = CompiledPassfileTest.compile(contents);
+            assertEquals(compiled.size(), packed.size());
+            CompiledPassfileTest.assertMatchesLinearScan(contents, packed::getPassword);
+        }
+    }
+
+    @Test
+    void packsStreamsOfUnknownLength() {
+        Random random = new Random(11);
+        String contents = randomPassfile(random, 3000);
+        // A stream that doesn't report its length starts with a small
+        // buffer, which has to grow.
+        PackedPassfile packed = PackedPassfile.from(new FilterInputStream(
+                new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int available() {
+                return 0;
+            }
+        });
+        assertEquals(CompiledPassfileTest.compile(contents).size(), packed.size());
+        CompiledPassfileTest.assertMatchesLinearScan(contents, packed::getPassword);
+    }
+}
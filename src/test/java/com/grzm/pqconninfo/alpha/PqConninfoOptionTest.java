@@ -0,0 +1,45 @@
+package com.grzm.pqconninfo.alpha;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PqConninfoOptionTest {
+
+    @ParameterizedTest
+    @EnumSource(PqConninfoOption.class)
+    void forKeyword(PqConninfoOption opt) {
+        assertSame(opt, PqConninfoOption.forKeyword(opt.keyword));
+        if (opt.environmentVariable != null) {
+            assertSame(opt, PqConninfoOption.forEnvironmentVariable(opt.environmentVariable));
+        }
+    }
+
+    @Test
+    void unknownNames() {
+        assertNull(PqConninfoOption.forKeyword("no_such_keyword"));
+        assertNull(PqConninfoOption.forKeyword("HOST"));
+        assertNull(PqConninfoOption.forKeyword(null));
+        assertNull(PqConninfoOption.forEnvironmentVariable("PGNOSUCHVAR"));
+        assertNull(PqConninfoOption.forEnvironmentVariable("host"));
+    }
+
+    @Test
+    void environmentOptions() {
+        List<PqConninfoOption> expected = new ArrayList<>();
+        for (PqConninfoOption opt : PqConninfoOption.values()) {
+            if (opt.environmentVariable != null) {
+                expected.add(opt);
+            }
+        }
+        assertEquals(expected, PqConninfoOption.environmentOptions());
+        assertFalse(PqConninfoOption.environmentOptions().contains(PqConninfoOption.KEEPALIVES));
+        assertThrows(UnsupportedOperationException.class,
+                () -> PqConninfoOption.environmentOptions().remove(0));
+    }
+}
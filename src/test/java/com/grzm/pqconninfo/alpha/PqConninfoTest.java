@@ -9,7 +9,13 @@ import java.util.*;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 class PqConninfoTest {
@@ -298,6 +304,59 @@ class PqConninfoTest {
         PqConninfo conninfo2 = PqConninfo.from(opts);
         assertEquals(conninfo, conninfo2);
         assertNotSame(conninfo, conninfo2);
+        assertEquals(conninfo.hashCode(), conninfo2.hashCode());
+        assertSame(conninfo.toString(), conninfo.toString());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void builder() {
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+            put(PqConninfoOption.HOST, "opts-host");
+            put(PqConninfoOption.DBNAME, null);
+        }};
+
+        PqConninfo.Builder builder = new PqConninfo.Builder()
+                .putAllIfAbsent(opts)
+                .putIfAbsent(PqConninfoOption.HOST, "other-host")
+                .putIfAbsent(PqConninfoOption.PORT, "5432")
+                .putIfAbsent(PqConninfoOption.USER, null);
+        assertTrue(builder.contains(PqConninfoOption.HOST));
+        assertFalse(builder.contains(PqConninfoOption.DBNAME));
+        assertFalse(builder.contains(PqConninfoOption.USER));
+        assertEquals("5432", builder.get(PqConninfoOption.PORT));
+
+        PqConninfo conninfo = builder.build();
+        assertThrows(IllegalStateException.class,
+                () -> builder.put(PqConninfoOption.HOST, "later-host"));
+        assertEquals("opts-host", conninfo.get(PqConninfoOption.HOST));
+        assertTrue(conninfo.contains(PqConninfoOption.PORT));
+        assertFalse(conninfo.contains(PqConninfoOption.DBNAME));
+        assertNull(conninfo.get(PqConninfoOption.DBNAME));
+        assertEquals("PqConninfo{opts={HOST=opts-host, PORT=5432}}", conninfo.toString());
+
+        PqConninfo expected = PqConninfo.from(new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+            put(PqConninfoOption.PORT, "5432");
+            put(PqConninfoOption.HOST, "opts-host");
+        }});
+        assertEquals(expected, conninfo);
+        assertEquals(expected.hashCode(), conninfo.hashCode());
+        assertNotEquals(expected, PqConninfo.from(opts));
+    }
+
+    @Test
+    void intern() {
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+            put(PqConninfoOption.HOST, "intern-host");
+            put(PqConninfoOption.DBNAME, "intern-dbname");
+        }};
+        PqConninfo canonical = PqConninfo.from(opts).intern();
+        PqConninfo other = PqConninfo.from(opts);
+        assertNotSame(canonical, other);
+        assertSame(canonical, other.intern());
+        assertSame(canonical, canonical.intern());
+
+        opts.put(PqConninfoOption.PORT, "5433");
+        assertNotSame(canonical, PqConninfo.from(opts).intern());
+    }
+}
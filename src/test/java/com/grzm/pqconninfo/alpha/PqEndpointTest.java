@@ -0,0 +1,145 @@
+package com.grzm.pqconninfo.alpha;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class PqEndpointTest {
+
+    private static EnumMap<PqConninfoOption, String> opts(
+            String host, String hostaddr, String port) {
+        EnumMap<PqConninfoOption, String> opts
+                = new EnumMap<>(PqConninfoOption.class);
+        if (host != null) {
+            opts.put(PqConninfoOption.HOST, host);
+        }
+        if (hostaddr != null) {
+            opts.put(PqConninfoOption.HOSTADDR, hostaddr);
+        }
+        if (port != null) {
+            opts.put(PqConninfoOption.PORT, port);
+        }
+        return opts;
+    }
+
+    private static InputStream pgpass(String contents) {
+        return new ByteArrayInputStream(
+                contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Stream<Arguments> endpointsProvider() {
+        return Stream.of(
+                arguments(opts(null, null, null), Collections.singletonList(
+                        new PqEndpoint(null, null, null))),
+                arguments(opts("a", null, "6543"), Collections.singletonList(
+                        new PqEndpoint("a", null, "6543"))),
+                arguments(opts("a,b,c", null, "5432,5433,5434"), Arrays.asList(
+                        new PqEndpoint("a", null, "5432"),
+                        new PqEndpoint("b", null, "5433"),
+                        new PqEndpoint("c", null, "5434"))),
+                arguments(opts("a,b", null, "6543"), Arrays.asList(
+                        new PqEndpoint("a", null, "6543"),
+                        new PqEndpoint("b", null, "6543"))),
+                arguments(opts("a,,b", null, null), Arrays.asList(
+                        new PqEndpoint("a", null, null),
+                        new PqEndpoint("", null, null),
+                        new PqEndpoint("b", null, null))),
+                arguments(opts("a,b", "10.0.0.1,10.0.0.2", ",5433"),
+                        Arrays.asList(
+                                new PqEndpoint("a", "10.0.0.1", ""),
+                                new PqEndpoint("b", "10.0.0.2", "5433"))),
+                arguments(opts(null, "10.0.0.1,10.0.0.2", null), Arrays.asList(
+                        new PqEndpoint(null, "10.0.0.1", null),
+                        new PqEndpoint(null, "10.0.0.2", null)))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("endpointsProvider")
+    void from(EnumMap<PqConninfoOption, String> opts,
+              List<PqEndpoint> expected) {
+        assertEquals(expected, PqEndpoint.from(opts));
+    }
+
+    @Test
+    void mismatchedLists() {
+        MalformedConninfoException e = assertThrows(
+                MalformedConninfoException.class,
+                () -> PqEndpoint.from(opts("a,b", "10.0.0.1", null)));
+        assertEquals("could not match 2 host names to 1 hostaddr values",
+                e.getMessage());
+        e = assertThrows(MalformedConninfoException.class,
+                () -> PqEndpoint.from(opts("a,b,c", null, "5432,5433")));
+        assertEquals("could not match 2 port numbers to 3 hosts",
+                e.getMessage());
+    }
+
+    @Test
+    void passfileHostAndPort() {
+        assertEquals("localhost",
+                new PqEndpoint(null, null, null).getPassfileHost());
+        assertEquals("localhost",
+                new PqEndpoint("/tmp", null, null).getPassfileHost());
+        assertEquals("10.0.0.1",
+                new PqEndpoint("", "10.0.0.1", null).getPassfileHost());
+        assertEquals("a",
+                new PqEndpoint("a", "10.0.0.1", null).getPassfileHost());
+        assertEquals("5432",
+                new PqEndpoint("a", null, "").getPassfilePort());
+        assertEquals("6543",
+                new PqEndpoint("a", null, "6543").getPassfilePort());
+    }
+
+    @Test
+    void getPasswordsMatchesGetPassword() {
+        String contents = "a:5432:db:alice:a-password\n"
+                + "*:5433:db:alice:port-5433\n"
+                + "b:5433:db:alice:shadowed\n"
+                + "localhost:*:db:alice:local\n"
+                + "10.0.0.1:*:*:*:by-address\n";
+        List<PqEndpoint> endpoints = Arrays.asList(
+                new PqEndpoint("a", null, "5432"),
+                new PqEndpoint("b", null, "5433"),
+                new PqEndpoint("c", null, "5432"),
+                new PqEndpoint("", null, "5432"),
+                new PqEndpoint("", "10.0.0.1", "5432"));
+
+        String[] passwords = Passfile.getPasswords(endpoints, "db", "alice",
+                pgpass(contents));
+
+        assertEquals(endpoints.size(), passwords.length);
+        for (int i = 0; i < passwords.length; i++) {
+            PqEndpoint endpoint = endpoints.get(i);
+            assertEquals(Passfile.getPassword(endpoint.getPassfileHost(),
+                            endpoint.getPassfilePort(), "db", "alice",
+                            pgpass(contents)),
+                    passwords[i], endpoint.toString());
+        }
+        assertArrayEquals(new String[]{"a-password", "port-5433", null,
+                "local", "by-address"}, passwords);
+    }
+
+    @Test
+    void getPasswordsRequiresDbnameAndUser() {
+        List<PqEndpoint> endpoints = Arrays.asList(
+                new PqEndpoint("a", null, null),
+                new PqEndpoint("b", null, null));
+        assertArrayEquals(new String[2], Passfile.getPasswords(endpoints,
+                "", "alice", pgpass("*:*:*:*:password\n")));
+        assertArrayEquals(new String[2], Passfile.getPasswords(endpoints,
+                "db", null, pgpass("*:*:*:*:password\n")));
+    }
+}
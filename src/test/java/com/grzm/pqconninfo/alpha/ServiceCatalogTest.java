@@ -0,0 +1,162 @@
+package com.grzm.pqconninfo.alpha;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceCatalogTest {
+
+    private static final String CONTENTS = "# services\n"
+            + "user=ignored\n"
+            + "[one]\n"
+            + "user=one_user\n"
+            + "port=6543\n"
+            + "\n"
+            + "[two]\n"
+            + "  # comment\n"
+            + "  dbname=two_db  \n"
+            + "[one]\n"
+            + "user=shadowed_user\n"
+            + "[bad]\n"
+            + "user=bad_user\n"
+            + "bad_port=6543\n"
+            + "more bad\n"
+            + "[nested]\n"
+            + "service=one\n"
+            + "[]\n"
+            + "host=empty-name\n"
+            + "[empty]\n"
+            + "[]trailing\n"
+            + "host=not-a-section\n";
+
+    private static ServiceCatalog catalog(String contents) throws IOException {
+        return ServiceCatalog.parse(
+                new ByteArrayInputStream(contents.getBytes()));
+    }
+
+    private static EnumMap<PqConninfoOption, String> serviceFile(
+            String service, String contents) throws IOException {
+        return ServiceFile.getServiceConninfo(service,
+                new ByteArrayInputStream(contents.getBytes()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"one", "two", "empty", "", "missing", "[one]",
+            "ignored"})
+    void lookupMatchesServiceFile(String service) throws IOException {
+        assertEquals(serviceFile(service, CONTENTS),
+                catalog(CONTENTS).getServiceConninfo(service));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bad", "nested"})
+    void malformedSectionThrowsOnLookup(String service) throws IOException {
+        ServiceCatalog catalog = catalog(CONTENTS);
+        MalformedServiceFileException expected = assertThrows(
+                MalformedServiceFileException.class,
+                () -> serviceFile(service, CONTENTS));
+        MalformedServiceFileException actual = assertThrows(
+                MalformedServiceFileException.class,
+                () -> catalog.getServiceConninfo(service));
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getLineNumber(), actual.getLineNumber());
+        assertEquals(expected.getLine(), actual.getLine());
+    }
+
+    @Test
+    void recordsErrorsAndServiceNames() throws IOException {
+        ServiceCatalog catalog = catalog(CONTENTS);
+        assertEquals(14, catalog.getErrors().get("bad").getLineNumber());
+        assertEquals(2, catalog.getErrors().size());
+        assertTrue(catalog.getServiceNames().containsAll(
+                Arrays.asList("one", "two", "bad", "nested", "",
+                        "empty")));
+        assertEquals(6, catalog.getServiceNames().size());
+    }
+
+    @Test
+    void lookupReturnsCopy() throws IOException {
+        ServiceCatalog catalog = catalog(CONTENTS);
+        catalog.getServiceConninfo("one").clear();
+        assertEquals("one_user",
+                catalog.getServiceConninfo("one").get(PqConninfoOption.USER));
+    }
+
+    @Test
+    void poolsRepeatedValues() throws IOException {
+        ServiceCatalog catalog = catalog("[one]\nhost=db.example.com\n"
+                + "[two]\nhost=db.example.com\nsslrootcert=/etc/ssl/root.crt\n"
+                + "[three]\nsslrootcert=/etc/ssl/root.crt\n");
+        assertSame(catalog.getServiceConninfo("one").get(PqConninfoOption.HOST),
+                catalog.getServiceConninfo("two").get(PqConninfoOption.HOST));
+        assertSame(catalog.getServiceConninfo("two").get(PqConninfoOption.SSLROOTCERT),
+                catalog.getServiceConninfo("three").get(PqConninfoOption.SSLROOTCERT));
+    }
+
+    @Test
+    void emptyCatalog() throws IOException {
+        assertSame(ServiceCatalog.EMPTY, ServiceCatalog.parse(null));
+        assertSame(ServiceCatalog.EMPTY, catalog("# nothing\n"));
+        assertNull(ServiceCatalog.EMPTY.getServiceConninfo("one"));
+    }
+
+    @Test
+    void withFallback() throws IOException {
+        ServiceCatalog user = catalog("[one]\nuser=user_one\n"
+                + "[bad]\nbad=1\n"
+                + "[worse]\nworse=1\n");
+        ServiceCatalog sysconfdir = catalog("[one]\nuser=sys_one\n"
+                + "[bad]\nuser=sys_bad\n"
+                + "[worse]\nbad=1\n"
+                + "[two]\nuser=sys_two\n");
+        ServiceCatalog catalog = user.withFallback(sysconfdir);
+
+        assertEquals("user_one",
+                catalog.getServiceConninfo("one").get(PqConninfoOption.USER));
+        assertEquals("sys_bad",
+                catalog.getServiceConninfo("bad").get(PqConninfoOption.USER));
+        assertEquals("sys_two",
+                catalog.getServiceConninfo("two").get(PqConninfoOption.USER));
+        MalformedServiceFileException e = assertThrows(
+                MalformedServiceFileException.class,
+                () -> catalog.getServiceConninfo("worse"));
+        assertEquals("worse=1", e.getLine());
+        assertNull(catalog.getServiceConninfo("missing"));
+        assertSame(user, user.withFallback(ServiceCatalog.EMPTY));
+        assertSame(sysconfdir, ServiceCatalog.EMPTY.withFallback(sysconfdir));
+    }
+
+    @Test
+    void forContextUsesUserThenSysconfdir() {
+        BasicTestContext context = new BasicTestContext();
+        context.setUserServiceFileContents("[one]\nuser=user_one\n");
+        context.setConfigSysconfdirServiceFileContents(
+                "[one]\nuser=sys_one\n[two]\nuser=sys_two\n");
+        ServiceCatalog catalog = ServiceCatalog.forContext(context);
+        assertEquals("user_one",
+                catalog.getServiceConninfo("one").get(PqConninfoOption.USER));
+        assertEquals("sys_two",
+                catalog.getServiceConninfo("two").get(PqConninfoOption.USER));
+    }
+
+    @Test
+    void forContextUsesOnlyEnvServiceFile() {
+        HashMap<String, String> env = new HashMap<>();
+        env.put(EnvVars.PGSERVICEFILE, "/some/pg_service.conf");
+        BasicTestContext context = new BasicTestContext(env);
+        context.setEnvServiceFileContents("[one]\nuser=env_one\n");
+        context.setUserServiceFileContents("[two]\nuser=user_two\n");
+        ServiceCatalog catalog = ServiceCatalog.forContext(context);
+        assertEquals("env_one",
+                catalog.getServiceConninfo("one").get(PqConninfoOption.USER));
+        assertNull(catalog.getServiceConninfo("two"));
+    }
+}
@@ -32,7 +32,31 @@ class ServiceFileTest {
                         "*:some-port:some-database:some-username:my-pass\\:word"),
                 arguments("my-pass\\:word",
                         "some-host", "some-port", "some-database", "some-username",
-                        "*:some-port:some-database:some-username:my-pass\\\\\\:word")
+                        "*:some-port:some-database:some-username:my-pass\\\\\\:word"),
+                arguments("my-password",
+                        "some-host", "some-port", "some-database", "some-username",
+                        "some-host:some-port:some-database:some-username:my-password::"),
+                arguments(null,
+                        "some-host", "some-port", "some-database", "some-username",
+                        "some-host:some-port:some-database:some-username:my-password::extra"),
+                arguments(null,
+                        "some-host", "some-port", "some-database", "some-username",
+                        "some-host:some-port:some-database:some-username:"),
+                arguments(null,
+                        "some-host", "some-port", "some-database", "some-username",
+                        "some-host:some-port:some-database:some-username"),
+                arguments(null,
+                        "some-host", "some-port", "some-database", "some-username",
+                        "some-host\\:some-port:some-database:some-username:my-password"),
+                arguments("my-password\\",
+                        null, "some-port", "some-database", "some-username",
+                        "*:some-port:some-database:some-username:my-password\\"),
+                arguments(null,
+                        null, "some-port", "some-database", "some-username",
+                        ":some-port:some-database:some-username:my-password"),
+                arguments(null,
+                        "some-host", "some-port", "some-database", "some-username",
+                        "")
         );
     }
 
@@ -43,6 +67,48 @@ class ServiceFileTest {
         assertEquals(expected, Passfile.parsePgpassLine(host, port, dbname, user, entry));
     }
 
+    /**
+     * The regex-based line parser Passfile.parsePgpassLine replaced.
+     */
+    private static String legacyParsePgpassLine(String host, String port, String dbname, String user,
+                                                String line) {
+        String[] fields = line.split("(?<!\\\\):");
+        if (fields.length < 4 || 5 < fields.length) {
+            return null;
+        }
+        String[] opts = {host, port, dbname, user};
+        for (int i = 0; i < 4; i++) {
+            if (!fields[i].equals("*") && !fields[i].equals(opts[i])) {
+                return null;
+            }
+        }
+        if (fields.length == 4) {
+            return null;
+        }
+        return fields[4].replaceAll("\\\\([\\\\:])", "$1");
+    }
+
+    @Test
+    void parsePgpassLineMatchesLegacyParser() {
+        Random random = new Random(8);
+        String[] pieces = {"h", "p", "d", "u", "*", "", ":", "\\", "\\:", "\\\\", "x"};
+        String[][] opts = {{"h", null}, {"p", "*"}, {"d", ""}, {"u", "h:p"}};
+        for (int n = 0; n < 20000; n++) {
+            StringBuilder line = new StringBuilder(random.nextBoolean() ? "h:*:d:u:" : "");
+            int length = random.nextInt(14);
+            for (int i = 0; i < length; i++) {
+                line.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String host = opts[0][random.nextInt(2)];
+            String port = opts[1][random.nextInt(2)];
+            String dbname = opts[2][random.nextInt(2)];
+            String user = opts[3][random.nextInt(2)];
+            assertEquals(legacyParsePgpassLine(host, port, dbname, user, line.toString()),
+                    Passfile.parsePgpassLine(host, port, dbname, user, line.toString()),
+                    line.toString());
+        }
+    }
+
     static Stream<Arguments> pgpassContentsProvider() {
         return Stream.of(
                 arguments("my-password",
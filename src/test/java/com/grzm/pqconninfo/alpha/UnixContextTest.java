@@ -0,0 +1,111 @@
+package com.grzm.pqconninfo.alpha;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UnixContextTest {
+
+    @AfterEach
+    void restoreQuery() {
+        UnixContext.setConfigSysconfdirQuery(null);
+    }
+
+    @Test
+    void configSysconfdirIsMemoized() {
+        AtomicInteger calls = new AtomicInteger();
+        UnixContext.setConfigSysconfdirQuery(
+                () -> "/etc/postgresql-" + calls.incrementAndGet());
+
+        assertEquals("/etc/postgresql-1", UnixContext.getConfigSysconfdir());
+        assertEquals("/etc/postgresql-1", UnixContext.getConfigSysconfdir());
+        assertEquals(1, calls.get());
+
+        UnixContext.invalidateConfigSysconfdir();
+        UnixContext.prefetchConfigSysconfdir();
+        assertEquals("/etc/postgresql-2", UnixContext.getConfigSysconfdir());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void failedConfigSysconfdirLookupIsNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        UnixContext.setConfigSysconfdirQuery(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new InterruptedException();
+            }
+            return "/etc/postgresql";
+        });
+
+        assertNull(UnixContext.getConfigSysconfdir());
+        // The interrupt is passed on to the caller.
+        assertTrue(Thread.interrupted());
+        assertEquals("/etc/postgresql", UnixContext.getConfigSysconfdir());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void interruptIsOnlyRestoredOnTheInterruptedThread() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UnixContext.setConfigSysconfdirQuery(() -> {
+            started.countDown();
+            release.await();
+            throw new InterruptedException();
+        });
+
+        AtomicBoolean runnerInterrupted = new AtomicBoolean();
+        Thread runner = new Thread(() -> {
+            UnixContext.getConfigSysconfdir();
+            runnerInterrupted.set(Thread.interrupted());
+        });
+        runner.start();
+        started.await();
+        Thread caller = Thread.currentThread();
+        Thread releaser = new Thread(() -> {
+            // Fail the lookup once the caller is waiting for it.
+            while (caller.getState() != Thread.State.WAITING) {
+                Thread.yield();
+            }
+            release.countDown();
+        });
+        releaser.start();
+
+        // The lookup ran, and was interrupted, on the runner thread.
+        assertNull(UnixContext.getConfigSysconfdir());
+        assertFalse(Thread.interrupted());
+        runner.join();
+        assertTrue(runnerInterrupted.get());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void configSysconfdirQueryReadsFirstLine() throws InterruptedException {
+        assertEquals("/etc/postgresql",
+                UnixContext.queryConfigSysconfdir(5000,
+                        "sh", "-c", "echo /etc/postgresql; echo ignored"));
+        assertNull(UnixContext.queryConfigSysconfdir(5000, "sh", "-c",
+                "exit 1"));
+        assertNull(UnixContext.queryConfigSysconfdir(5000,
+                "pqconninfo-no-such-command"));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void configSysconfdirQueryTimesOut() throws InterruptedException {
+        long start = System.nanoTime();
+        assertNull(UnixContext.queryConfigSysconfdir(100, "sleep", "10"));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertFalse(elapsedMillis >= 5000, "took " + elapsedMillis + " ms");
+    }
+}
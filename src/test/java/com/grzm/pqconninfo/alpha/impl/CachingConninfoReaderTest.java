@@ -0,0 +1,294 @@
+package com.grzm.pqconninfo.alpha.impl;
+
+import com.grzm.pqconninfo.alpha.BasicTestContext;
+import com.grzm.pqconninfo.alpha.Context;
+import com.grzm.pqconninfo.alpha.FileChangeListener;
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.PqConninfoOptionsReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingConninfoReaderTest {
+
+    static class CountingReader implements PqConninfoOptionsReader {
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public PqConninfo read(Context context, Properties props) {
+            reads.incrementAndGet();
+            return new EnumMapConninfoReader().read(context, props);
+        }
+    }
+
+    final HashMap<String, String> env = new HashMap<String, String>() {{
+        put("PGHOST", "first-host");
+    }};
+    final Context context = new BasicTestContext(env);
+    final Properties props = new Properties() {{
+        setProperty("dbname", "some-dbname");
+    }};
+    final CountingReader delegate = new CountingReader();
+    final AtomicLong clock = new AtomicLong();
+    final Queue<Runnable> tasks = new ArrayDeque<>();
+    final CachingConninfoReader reader = new CachingConninfoReader(delegate,
+            100, 20, TimeUnit.NANOSECONDS, tasks::add,
+            CachingConninfoReader.DEFAULT_MAX_ENTRIES, true, clock::get);
+
+    static Properties dbname(String dbname) {
+        Properties props = new Properties();
+        props.setProperty("dbname", dbname);
+        return props;
+    }
+
+    @Test
+    void servesHitsFromCache() {
+        PqConninfo first = reader.read(context, props);
+        clock.set(50);
+        assertSame(first, reader.read(context, props));
+        assertEquals(1, delegate.reads.get());
+        assertEquals(1, reader.getHitCount());
+        assertEquals(1, reader.getMissCount());
+        assertTrue(tasks.isEmpty());
+
+        reader.read(context, new Properties());
+        assertEquals(2, reader.getMissCount());
+        assertEquals(2, reader.size());
+    }
+
+    @Test
+    void internsEqualResults() {
+        PqConninfo first = reader.read(context, props);
+        Properties sameDbname = new Properties() {{
+            setProperty("dbname", "some-dbname");
+            setProperty("host", "first-host");
+        }};
+        assertSame(first, reader.read(context, sameDbname));
+        assertEquals(2, delegate.reads.get());
+        assertEquals(2, reader.size());
+    }
+
+    @Test
+    void interningCanBeTurnedOff() {
+        CachingConninfoReader notInterning = new CachingConninfoReader(
+                delegate, 100, 20, TimeUnit.NANOSECONDS, tasks::add,
+                CachingConninfoReader.DEFAULT_MAX_ENTRIES, false, clock::get);
+        PqConninfo first = notInterning.read(context, props);
+        Properties sameDbname = new Properties() {{
+            setProperty("dbname", "some-dbname");
+            setProperty("host", "first-host");
+        }};
+        PqConninfo second = notInterning.read(context, sameDbname);
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertSame(first, notInterning.read(context, props));
+    }
+
+    @Test
+    void refreshesAheadOfExpiry() {
+        PqConninfo first = reader.read(context, props);
+
+        clock.set(85);
+        assertSame(first, reader.read(context, props));
+        assertSame(first, reader.read(context, props));
+        assertEquals(1, tasks.size());
+        tasks.poll().run();
+        // Unchanged sources: the entry is renewed without reading the context.
+        assertEquals(1, delegate.reads.get());
+        assertEquals(1, reader.getRefreshCount());
+
+        clock.set(150);
+        assertSame(first, reader.read(context, props));
+
+        clock.set(170);
+        env.put("PGHOST", "second-host");
+        reader.read(context, props);
+        tasks.poll().run();
+        assertEquals(2, delegate.reads.get());
+        assertEquals("second-host",
+                reader.read(context, props).get(PqConninfoOption.HOST));
+        assertEquals(1, reader.getMissCount());
+    }
+
+    @Test
+    void expiredEntriesAreReadAgain() {
+        reader.read(context, props);
+        clock.set(100);
+        reader.read(context, props);
+        assertEquals(2, delegate.reads.get());
+        assertEquals(2, reader.getMissCount());
+        assertEquals(0, reader.getHitCount());
+    }
+
+    @Test
+    void fileChangesInvalidateAffectedEntries() {
+        env.put("PGPASSFILE", "/some/dir/pgpass");
+        reader.read(context, props);
+        Context otherContext = new BasicTestContext();
+        reader.read(otherContext, props);
+        assertEquals(2, reader.size());
+
+        reader.fileChanged("/some/dir/other-file");
+        assertEquals(2, reader.size());
+
+        reader.fileChanged("/some/dir/pgpass");
+        assertEquals(1, reader.size());
+        reader.read(otherContext, props);
+        assertEquals(1, reader.getHitCount());
+    }
+
+    @Test
+    void mapAndPropertiesShareEntries() {
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<>(PqConninfoOption.class);
+        opts.put(PqConninfoOption.DBNAME, "some-dbname");
+
+        PqConninfo first = reader.read(context, opts);
+        assertSame(first, reader.read(context, props));
+        assertEquals(1, reader.getMissCount());
+        assertEquals(1, reader.getHitCount());
+        // The delegate only implements read(Context, Properties).
+        assertEquals(1, delegate.reads.get());
+        assertEquals("some-dbname", first.get(PqConninfoOption.DBNAME));
+    }
+
+    @Test
+    void rejectedRefreshServesCachedValue() {
+        AtomicInteger rejections = new AtomicInteger();
+        CachingConninfoReader rejecting = new CachingConninfoReader(delegate,
+                100, 20, TimeUnit.NANOSECONDS, task -> {
+                    rejections.incrementAndGet();
+                    throw new RejectedExecutionException("shut down");
+                }, CachingConninfoReader.DEFAULT_MAX_ENTRIES, true, clock::get);
+
+        PqConninfo first = rejecting.read(context, props);
+        clock.set(85);
+        assertSame(first, rejecting.read(context, props));
+        // The refresh is attempted again by the next read.
+        assertSame(first, rejecting.read(context, props));
+        assertEquals(2, rejections.get());
+        assertEquals(1, delegate.reads.get());
+    }
+
+    @Test
+    void expiredEntriesAreSwept() {
+        reader.read(context, dbname("first"));
+        clock.set(50);
+        reader.read(context, dbname("second"));
+        assertEquals(2, reader.size());
+
+        clock.set(120);
+        reader.read(context, dbname("third"));
+        assertEquals(2, reader.size());
+    }
+
+    @Test
+    void oldestEntriesAreEvictedWhenFull() {
+        CachingConninfoReader bounded = new CachingConninfoReader(delegate,
+                100, 20, TimeUnit.NANOSECONDS, tasks::add, 2, true, clock::get);
+
+        bounded.read(context, dbname("first"));
+        clock.set(1);
+        bounded.read(context, dbname("second"));
+        clock.set(2);
+        bounded.read(context, dbname("third"));
+        assertEquals(2, bounded.size());
+
+        bounded.read(context, dbname("second"));
+        bounded.read(context, dbname("third"));
+        assertEquals(2, bounded.getHitCount());
+        bounded.read(context, dbname("first"));
+        assertEquals(4, bounded.getMissCount());
+    }
+
+    @Test
+    void maxSizeMustBePositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CachingConninfoReader(delegate, 100, 20,
+                        TimeUnit.NANOSECONDS, tasks::add, 0));
+    }
+
+    static class ListeningContext extends BasicTestContext
+            implements FileChangeListener {
+        final List<String> changed = new ArrayList<>();
+
+        ListeningContext(HashMap<String, String> env) {
+            super(env);
+        }
+
+        @Override
+        public void fileChanged(String filename) {
+            changed.add(filename);
+        }
+    }
+
+    @Test
+    void fileChangesArePassedToCachedContexts() {
+        env.put("PGPASSFILE", "/some/dir/pgpass");
+        ListeningContext listening = new ListeningContext(env);
+        reader.read(listening, props);
+        reader.read(listening, new Properties());
+
+        reader.fileChanged("/some/dir/pgpass");
+        // Notified once, however many entries were read from the context.
+        assertEquals(1, listening.changed.size());
+        assertEquals(0, reader.size());
+    }
+
+    @Test
+    void invalidationDuringLoadIsNotCached() {
+        env.put("PGPASSFILE", "/some/dir/pgpass");
+        final CachingConninfoReader[] racing = new CachingConninfoReader[1];
+        PqConninfoOptionsReader changing = (ctx, p) -> {
+            // The file changes while the context is being read.
+            racing[0].fileChanged("/some/dir/pgpass");
+            return delegate.read(ctx, p);
+        };
+        racing[0] = new CachingConninfoReader(changing, 100, 20,
+                TimeUnit.NANOSECONDS, tasks::add,
+                CachingConninfoReader.DEFAULT_MAX_ENTRIES, true, clock::get);
+
+        assertNotNull(racing[0].read(context, props));
+        assertEquals(0, racing[0].size());
+        racing[0].read(context, props);
+        assertEquals(2, delegate.reads.get());
+    }
+
+    @Test
+    void invalidationDuringRefreshIsNotCached() {
+        env.put("PGPASSFILE", "/some/dir/pgpass");
+        final CachingConninfoReader[] racing = new CachingConninfoReader[1];
+        final boolean[] change = {false};
+        PqConninfoOptionsReader changing = (ctx, p) -> {
+            if (change[0]) {
+                // The file changes while the refresh reads the context.
+                racing[0].fileChanged("/some/dir/pgpass");
+            }
+            return delegate.read(ctx, p);
+        };
+        racing[0] = new CachingConninfoReader(changing, 100, 20,
+                TimeUnit.NANOSECONDS, tasks::add,
+                CachingConninfoReader.DEFAULT_MAX_ENTRIES, true, clock::get);
+
+        racing[0].read(context, props);
+        clock.set(85);
+        env.put("PGHOST", "second-host");
+        racing[0].read(context, props);
+        change[0] = true;
+        tasks.poll().run();
+        assertEquals(2, delegate.reads.get());
+        assertEquals(0, racing[0].size());
+    }
+}
@@ -0,0 +1,86 @@
+package com.grzm.pqconninfo.alpha.impl;
+
+import com.grzm.pqconninfo.alpha.BasicTestContext;
+import com.grzm.pqconninfo.alpha.Context;
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOptionsReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingConninfoReaderTest {
+
+    static class BlockingReader implements PqConninfoOptionsReader {
+        final AtomicInteger reads = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public PqConninfo read(Context context, Properties props) {
+            reads.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new EnumMapConninfoReader().read(context, props);
+        }
+    }
+
+    static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.WAITING
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+
+    @Test
+    void concurrentReadsShareOneRead() throws Exception {
+        BlockingReader delegate = new BlockingReader();
+        CoalescingConninfoReader reader = new CoalescingConninfoReader(delegate);
+        Context context = new BasicTestContext();
+        Properties props = new Properties() {{
+            setProperty("dbname", "some-dbname");
+        }};
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<PqConninfo> first = pool.submit(() -> reader.read(context, props));
+            assertTrue(delegate.entered.await(10, TimeUnit.SECONDS));
+
+            AtomicReference<Thread> waiter = new AtomicReference<>();
+            Future<PqConninfo> second = pool.submit(() -> {
+                waiter.set(Thread.currentThread());
+                return reader.read(context, new Properties() {{
+                    setProperty("dbname", "some-dbname");
+                }});
+            });
+            while (waiter.get() == null) {
+                Thread.sleep(1);
+            }
+            awaitWaiting(waiter.get());
+
+            delegate.release.countDown();
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, delegate.reads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Nothing is kept once the read completes.
+        reader.read(context, props);
+        assertEquals(2, delegate.reads.get());
+    }
+}
@@ -1,10 +1,15 @@
 package com.grzm.pqconninfo.alpha.impl;
 
 import com.grzm.pqconninfo.alpha.*;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -19,6 +24,10 @@ class EnumMapConninfoReaderTest {
 
     static final EnumMap<PqConninfoOption, String> emptyOpts = new EnumMap<>(PqConninfoOption.class);
 
+    static PqConninfo.Builder builder(final EnumMap<PqConninfoOption, String> opts) {
+        return new PqConninfo.Builder().putAllIfAbsent(opts);
+    }
+
     static Stream<Arguments> putAllIfAbsentProvider() {
         final EnumMap<PqConninfoOption, String> a
                 = new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
@@ -83,6 +92,75 @@ class EnumMapConninfoReaderTest {
         assertEquals(expected, opts);
     }
 
+    @Test
+    void optsFromMap() {
+        HashMap<PqConninfoOption, String> map = new HashMap<>();
+        map.put(PqConninfoOption.USER, "map-user");
+        map.put(PqConninfoOption.DBNAME, null);
+        EnumMap<PqConninfoOption, String> expected = new EnumMap<>(PqConninfoOption.class);
+        expected.put(PqConninfoOption.USER, "map-user");
+
+        assertEquals(expected, EnumMapConninfoReader.optsFrom(map));
+        EnumMap<PqConninfoOption, String> enumMap = new EnumMap<>(map);
+        EnumMap<PqConninfoOption, String> opts = EnumMapConninfoReader.optsFrom(enumMap);
+        assertEquals(expected, opts);
+        assertNotSame(enumMap, opts);
+        assertTrue(enumMap.containsKey(PqConninfoOption.DBNAME));
+    }
+
+    @Test
+    void readMapMatchesReadProperties() {
+        HashMap<String, String> env = new HashMap<String, String>() {{
+            put("PGHOST", "env-host");
+            put("PGUSER", "env-user");
+        }};
+        BasicTestContext context = new BasicTestContext(env);
+        context.setUserPassfileContents("env-host:*:prop-dbname:prop-user:password");
+        Properties props = new Properties() {{
+            setProperty("dbname", "prop-dbname");
+            setProperty("user", "prop-user");
+        }};
+        EnumMap<PqConninfoOption, String> opts = EnumMapConninfoReader.optsFrom(props);
+        EnumMap<PqConninfoOption, String> original = opts.clone();
+
+        PqConninfoOptionsReader reader = new EnumMapConninfoReader();
+        PqConninfo conninfo = reader.read(context, opts);
+        assertEquals(reader.read(context, props), conninfo);
+        assertEquals("password", conninfo.get(PqConninfoOption.PASSWORD));
+        assertEquals(original, opts);
+    }
+
+    @Test
+    void readUsesContextIndexes() {
+        // The indexes a context provides are used in place of its files.
+        Context context = new BasicTestContext(new HashMap<>()) {
+            @Override
+            public ServiceCatalog getUserServiceCatalog() {
+                try {
+                    return ServiceCatalog.parse(new ByteArrayInputStream(
+                            "[some-service]\nhost=indexed-host\n".getBytes(StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public CompiledPassfile getUserCompiledPassfile() {
+                return CompiledPassfile.from(new ByteArrayInputStream(
+                        "indexed-host:*:*:*:indexed-password".getBytes(StandardCharsets.UTF_8)));
+            }
+        };
+        Properties props = new Properties() {{
+            setProperty("service", "some-service");
+            setProperty("dbname", "some-dbname");
+            setProperty("user", "some-user");
+        }};
+
+        PqConninfo conninfo = new EnumMapConninfoReader().read(context, props);
+        assertEquals("indexed-host", conninfo.get(PqConninfoOption.HOST));
+        assertEquals("indexed-password", conninfo.get(PqConninfoOption.PASSWORD));
+    }
+
     static final MapEnvVars emptyEnv = new MapEnvVars(new HashMap<>());
 
     // service file
@@ -427,7 +505,7 @@ class EnumMapConninfoReaderTest {
                          final Context context,
                          final EnumMap<PqConninfoOption, String> sourceOpts,
                          final EnumMap<PqConninfoOption, String> expected) {
-        EnumMap<PqConninfoOption, String> opts = EnumMapConninfoReader.serviceOpts(context, sourceOpts);
+        EnumMap<PqConninfoOption, String> opts = EnumMapConninfoReader.serviceOpts(context, builder(sourceOpts));
         assertEquals(expected, opts, description);
     }
 
@@ -480,7 +558,7 @@ class EnumMapConninfoReaderTest {
     void environmentVariables(final Context context,
                               final EnumMap<PqConninfoOption, String> sourceOpts,
                               final EnumMap<PqConninfoOption, String> expected) {
-        EnumMap<PqConninfoOption, String> opts = EnumMapConninfoReader.environmentVariables(context, sourceOpts);
+        EnumMap<PqConninfoOption, String> opts = EnumMapConninfoReader.environmentVariables(context, builder(sourceOpts));
         assertEquals(expected, opts);
     }
 
@@ -510,9 +588,7 @@ class EnumMapConninfoReaderTest {
                               setSystemUser("system-user");
                           }},
                         new EnumMap<PqConninfoOption, String>(PqConninfoOption.class),
-                        new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
-                            put(PqConninfoOption.USER, "system-user");
-                        }}
+                        "system-user"
                 )
         );
 
@@ -522,9 +598,18 @@ class EnumMapConninfoReaderTest {
     @MethodSource("systemUserProvider")
     void systemUser(final Context context,
                     final EnumMap<PqConninfoOption, String> sourceOpts,
-                    final EnumMap<PqConninfoOption, String> expected) {
+                    final String expected) {
+        String user = EnumMapConninfoReader.systemUser(context, builder(sourceOpts));
+        assertEquals(expected, user);
+    }
+
+    @ParameterizedTest
+    @MethodSource("systemUserProvider")
+    void systemUserMap(final Context context,
+                       final EnumMap<PqConninfoOption, String> sourceOpts,
+                       final String expected) {
         EnumMap<PqConninfoOption, String> opts = EnumMapConninfoReader.systemUser(context, sourceOpts);
-        assertEquals(expected, opts);
+        assertEquals(expected, opts == null ? null : opts.get(PqConninfoOption.USER));
     }
 
     // passfile
@@ -558,9 +643,18 @@ class EnumMapConninfoReaderTest {
                             put(PqConninfoOption.DBNAME, "some-dbname");
                             put(PqConninfoOption.USER, "some-user");
                         }},
+                        "user-passfile-password"
+                ),
+                arguments(new BasicTestContext(emptyEnv) {{
+                              setUserPassfileContents("host-b:5433:some-dbname:some-user:host-b-password");
+                          }},
                         new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
-                            put(PqConninfoOption.PASSWORD, "user-passfile-password");
-                        }}
+                            put(PqConninfoOption.HOST, "host-a,host-b");
+                            put(PqConninfoOption.PORT, "5432,5433");
+                            put(PqConninfoOption.DBNAME, "some-dbname");
+                            put(PqConninfoOption.USER, "some-user");
+                        }},
+                        "host-b-password"
                 )
         );
 
@@ -570,9 +664,24 @@ class EnumMapConninfoReaderTest {
     @MethodSource("passfileInfoProvider")
     void passfileInfo(final Context context,
                       final EnumMap<PqConninfoOption, String> sourceOpts,
-                      final EnumMap<PqConninfoOption, String> expected) {
-        EnumMap<PqConninfoOption, String> opts = EnumMapConninfoReader.passfileInfo(context, sourceOpts);
-        assertEquals(expected, opts);
+                      final String expected) {
+        String password = EnumMapConninfoReader.passfileInfo(context, builder(sourceOpts));
+        assertEquals(expected, password);
+    }
+
+    @Test
+    void passfileInfoRejectsMismatchedPorts() {
+        Context context = new BasicTestContext(emptyEnv) {{
+            setUserPassfileContents("*:*:*:*:user-passfile-password");
+        }};
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+            put(PqConninfoOption.HOST, "host-a,host-b,host-c");
+            put(PqConninfoOption.PORT, "5432,5433");
+            put(PqConninfoOption.DBNAME, "some-dbname");
+            put(PqConninfoOption.USER, "some-user");
+        }};
+        assertThrows(MalformedConninfoException.class,
+                () -> EnumMapConninfoReader.passfileInfo(context, builder(opts)));
     }
 
 }
\ No newline at end of file
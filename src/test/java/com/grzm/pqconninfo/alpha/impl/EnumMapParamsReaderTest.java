@@ -20,7 +20,7 @@ class EnumMapParamsReaderTest {
     static Stream<Arguments> jdbcUrlParamProvider() {
         return Stream.of(
                 arguments("jdbc:postgresql://some_host:9999/some_database",
-                        "jdbc:postgresql://some_host:9999/some_database?user=some_user&password=some_password&kerberosServerName=someKerberosServerName&ApplicationName=some+application+name",
+                        "jdbc:postgresql://some_host:9999/some_database?user=some_user&password=some_password&kerberosServerName=someKerberosServerName&ApplicationName=some%20application%20name",
                         new Properties() {{
                             setProperty("host", "some_host");
                             setProperty("dbname", "some_database");
@@ -46,7 +46,7 @@ class EnumMapParamsReaderTest {
                             put(PqConninfoOption.KRBSRVNAME, "someKerberosServerName");
                         }}),
                 arguments("jdbc:postgresql://some_host/some_database",
-                        "jdbc:postgresql://some_host/some_database?user=some_user&password=some_password&kerberosServerName=someKerberosServerName&ApplicationName=some+application+name",
+                        "jdbc:postgresql://some_host/some_database?user=some_user&password=some_password&kerberosServerName=someKerberosServerName&ApplicationName=some%20application%20name",
                         new Properties() {{
                             setProperty("host", "some_host");
                             setProperty("dbname", "some_database");
@@ -109,6 +109,8 @@ class EnumMapParamsReaderTest {
             put(PqConninfoOption.GSSLIB, "gssapi");
             put(PqConninfoOption.SSLPASSWORD, "some ssl password");
             put(PqConninfoOption.REPLICATION, "yes");
+            put(PqConninfoOption.TARGET_SESSION_ATTRS, "read-write");
+            put(PqConninfoOption.LOAD_BALANCE_HOSTS, "random");
         }};
 
         PqConninfo conninfo = PqConninfo.from(opts);
@@ -134,6 +136,8 @@ class EnumMapParamsReaderTest {
             setProperty("gsslib", "gssapi");
             setProperty("sslpassword", "some ssl password");
             setProperty("replication", "true");
+            setProperty("targetServerType", "primary");
+            setProperty("loadBalanceHosts", "true");
         }};
 
         assertEquals(expectedProps, params.toProperties());
@@ -0,0 +1,159 @@
+package com.grzm.pqconninfo.alpha.impl;
+
+import com.grzm.pqconninfo.alpha.MalformedConninfoException;
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParameter;
+import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcElfTest {
+
+    static JdbcConnectionParameters allParameters() {
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<PqConninfoOption, String>(PqConninfoOption.class) {{
+            put(PqConninfoOption.HOST, "some-host");
+            put(PqConninfoOption.PORT, "6543");
+            put(PqConninfoOption.DBNAME, "some-dbname");
+            put(PqConninfoOption.USER, "some-user");
+            put(PqConninfoOption.PASSWORD, "some-password");
+            put(PqConninfoOption.OPTIONS, "-c geqo=off");
+            put(PqConninfoOption.SSLMODE, "verify-full");
+            put(PqConninfoOption.SSLCERT, "/some/cert");
+            put(PqConninfoOption.SSLKEY, "/some/key");
+            put(PqConninfoOption.SSLROOTCERT, "/some/root-cert");
+            put(PqConninfoOption.CONNECT_TIMEOUT, "10");
+            put(PqConninfoOption.KRBSRVNAME, "some-krbsrvname");
+            put(PqConninfoOption.APPLICATION_NAME, "some-application");
+            put(PqConninfoOption.KEEPALIVES, "1");
+            put(PqConninfoOption.GSSENCMODE, "prefer");
+            put(PqConninfoOption.GSSLIB, "gssapi");
+            put(PqConninfoOption.SSLPASSWORD, "some-sslpassword");
+            put(PqConninfoOption.REPLICATION, "database");
+            put(PqConninfoOption.TARGET_SESSION_ATTRS, "prefer-standby");
+            put(PqConninfoOption.LOAD_BALANCE_HOSTS, "random");
+        }};
+        return JdbcConnectionParameters.from(PqConninfo.from(opts));
+    }
+
+    /**
+     * The getter of the given parameter, found by bean naming convention.
+     */
+    static Object getter(JdbcConnectionParameters params, JdbcConnectionParameter param) {
+        String name = param.keyword.substring(0, 1).toUpperCase(Locale.ENGLISH)
+                + param.keyword.substring(1);
+        for (Method method : JdbcConnectionParameters.class.getMethods()) {
+            if (method.getName().equals("get" + name) || method.getName().equals("is" + name)) {
+                try {
+                    return method.invoke(params);
+                } catch (ReflectiveOperationException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    @ParameterizedTest
+    @EnumSource(JdbcConnectionParameter.class)
+    void getParameterMatchesGetter(JdbcConnectionParameter param) {
+        JdbcConnectionParameters params = allParameters();
+        Object expected = getter(params, param);
+        assertEquals(expected, JdbcElf.getParameter(params, param));
+        assertEquals(param != JdbcConnectionParameter.SSL, expected != null);
+    }
+
+    static PqConninfo conninfo(PqConninfoOption option, String value) {
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<>(PqConninfoOption.class);
+        opts.put(option, value);
+        return PqConninfo.from(opts);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"any,any", "read-write,primary", "primary,primary",
+            "read-only,secondary", "standby,secondary",
+            "prefer-standby,preferSecondary", "bogus,"})
+    void targetServerType(String targetSessionAttrs, String expected) {
+        assertEquals(expected, JdbcElf.getTargetServerType(
+                conninfo(PqConninfoOption.TARGET_SESSION_ATTRS, targetSessionAttrs)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"random,true", "disable,false", "bogus,"})
+    void loadBalanceHosts(String loadBalanceHosts, Boolean expected) {
+        assertEquals(expected, JdbcElf.getLoadBalanceHosts(
+                conninfo(PqConninfoOption.LOAD_BALANCE_HOSTS, loadBalanceHosts)));
+    }
+
+    static String encode(String val) {
+        StringBuilder sb = new StringBuilder();
+        JdbcElf.appendEncoded(sb, val);
+        return sb.toString();
+    }
+
+    static String urlEncoderEncode(String val) throws UnsupportedEncodingException {
+        return URLEncoder.encode(val, "UTF-8").replace("+", "%20");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "db.example.com", "verify-full", "some application name",
+            "p@ss&word=?#%+", "søme üser", "日本語", "\uD83D\uDE00 emoji", "unpaired \uD83D",
+            "unpaired \uDE00 low", "trailing \uD83D"})
+    void appendEncodedMatchesUrlEncoder(String val) throws UnsupportedEncodingException {
+        assertEquals(urlEncoderEncode(val), encode(val));
+    }
+
+    @Test
+    void appendEncodedIsDecodable() throws UnsupportedEncodingException {
+        Random random = new Random(13);
+        for (int n = 0; n < 5000; n++) {
+            StringBuilder val = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        val.append((char) random.nextInt(0x80));
+                        break;
+                    case 1:
+                        val.append((char) (0x80 + random.nextInt(0x780)));
+                        break;
+                    case 2:
+                        val.append((char) (0x800 + random.nextInt(0xD000)));
+                        break;
+                    default:
+                        val.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                        break;
+                }
+            }
+            String s = val.toString();
+            assertEquals(urlEncoderEncode(s), encode(s), s);
+            assertEquals(s, URLDecoder.decode(encode(s), "UTF-8"), s);
+        }
+    }
+
+    @Test
+    void getPortsMatchesPortsToHosts() {
+        assertEquals(Arrays.asList(5432, 5433),
+                JdbcElf.getPorts("5432,5433", 2));
+        assertEquals(Arrays.asList(5432, 5432),
+                JdbcElf.getPorts("5432", 2));
+        assertTrue(JdbcElf.getPorts(null, 2).isEmpty());
+        MalformedConninfoException e = assertThrows(MalformedConninfoException.class,
+                () -> JdbcElf.getPorts("5432,5433", 3));
+        assertEquals("could not match 2 port numbers to 3 hosts", e.getMessage());
+    }
+}
@@ -0,0 +1,112 @@
+package com.grzm.pqconninfo.alpha.impl;
+
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParameter;
+import com.grzm.pqconninfo.alpha.jdbc.JdbcConnectionParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcTranslatorTest {
+
+    private static final String[][] VALUES = {
+            {"some-host", "/tmp"},
+            {"6543", "not-a-port"},
+            {"some-dbname", "some db/name"},
+            {"some-user", "søme üser"},
+            {"some-password", "p@ss&word=?"},
+            {"-c geqo=off", ""},
+            {"verify-full", "bogus"},
+            {"10", "-1"},
+            {"1", "0"},
+            {"prefer", "bogus"},
+            {"gssapi", "sspi"},
+            {"database", "off"},
+            {"read-only", "bogus"},
+            {"random", "disable"},
+    };
+
+    private static final PqConninfoOption[] OPTIONS = {
+            PqConninfoOption.HOST,
+            PqConninfoOption.PORT,
+            PqConninfoOption.DBNAME,
+            PqConninfoOption.USER,
+            PqConninfoOption.PASSWORD,
+            PqConninfoOption.OPTIONS,
+            PqConninfoOption.SSLMODE,
+            PqConninfoOption.CONNECT_TIMEOUT,
+            PqConninfoOption.KEEPALIVES,
+            PqConninfoOption.GSSENCMODE,
+            PqConninfoOption.GSSLIB,
+            PqConninfoOption.REPLICATION,
+            PqConninfoOption.TARGET_SESSION_ATTRS,
+            PqConninfoOption.LOAD_BALANCE_HOSTS,
+    };
+
+    static void assertTranslatesLikeJdbcElf(PqConninfo conninfo) {
+        JdbcConnectionParameters params = JdbcConnectionParameters.from(conninfo);
+        String message = conninfo.toString();
+
+        assertEquals(JdbcElf.makeUrl(params), params.getUrl(), message);
+        assertEquals(JdbcElf.makeUrlWithQueryString(params), params.getUrlWithQueryString(), message);
+        assertEquals(JdbcElf.makeInfo(params), params.getInfo(), message);
+        assertEquals(JdbcElf.makeProperties(params), params.toProperties(), message);
+
+        assertEquals(JdbcElf.getHost(conninfo), params.getHost(), message);
+        assertEquals(JdbcElf.getPort(conninfo), params.getPort(), message);
+        assertEquals(JdbcElf.getDbname(conninfo), params.getDbname(), message);
+        assertEquals(JdbcElf.getUser(conninfo), params.getUser(), message);
+        assertEquals(JdbcElf.getPassword(conninfo), params.getPassword(), message);
+        assertEquals(JdbcElf.getOptions(conninfo), params.getOptions(), message);
+        assertEquals(JdbcElf.getSslmode(conninfo), params.getSslmode(), message);
+        assertEquals(JdbcElf.getSslcert(conninfo), params.getSslcert(), message);
+        assertEquals(JdbcElf.getSslkey(conninfo), params.getSslkey(), message);
+        assertEquals(JdbcElf.getSslrootcert(conninfo), params.getSslrootcert(), message);
+        assertEquals(JdbcElf.getConnectTimeout(conninfo), params.getConnectTimeout(), message);
+        assertEquals(JdbcElf.getKerberosServerName(conninfo), params.getKerberosServerName(), message);
+        assertEquals(JdbcElf.getApplicationName(conninfo), params.getApplicationName(), message);
+        assertEquals(JdbcElf.getTcpKeepAlive(conninfo), params.getTcpKeepAlive(), message);
+        assertEquals(JdbcElf.getGssencmode(conninfo), params.getGssencmode(), message);
+        assertEquals(JdbcElf.getGsslib(conninfo), params.getGsslib(), message);
+        assertEquals(JdbcElf.getSslpassword(conninfo), params.getSslpassword(), message);
+        assertEquals(JdbcElf.getReplication(conninfo), params.getReplication(), message);
+        assertEquals(JdbcElf.getTargetServerType(conninfo), params.getTargetServerType(), message);
+        assertEquals(JdbcElf.getLoadBalanceHosts(conninfo), params.getLoadBalanceHosts(), message);
+    }
+
+    @Test
+    void emptyConninfo() {
+        PqConninfo conninfo = PqConninfo.from(new EnumMap<>(PqConninfoOption.class));
+        assertTranslatesLikeJdbcElf(conninfo);
+        assertEquals("jdbc:postgresql:/",
+                JdbcTranslator.translate(conninfo).getUrlWithQueryString());
+    }
+
+    @Test
+    void allParameters() {
+        JdbcConnectionParameters params = JdbcElfTest.allParameters();
+        for (JdbcConnectionParameter p : JdbcConnectionParameter.values()) {
+            assertEquals(JdbcElf.getParameter(params, p) == null,
+                    params.toProperties().getProperty(p.keyword) == null, p.keyword);
+        }
+    }
+
+    @Test
+    void translatesLikeJdbcElf() {
+        Random random = new Random(12);
+        for (int n = 0; n < 2000; n++) {
+            EnumMap<PqConninfoOption, String> opts = new EnumMap<>(PqConninfoOption.class);
+            for (int i = 0; i < OPTIONS.length; i++) {
+                int choice = random.nextInt(3);
+                if (choice < 2) {
+                    opts.put(OPTIONS[i], VALUES[i][choice]);
+                }
+            }
+            assertTranslatesLikeJdbcElf(PqConninfo.from(opts));
+        }
+    }
+}
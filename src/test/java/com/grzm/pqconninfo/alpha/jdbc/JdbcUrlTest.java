@@ -0,0 +1,121 @@
+package com.grzm.pqconninfo.alpha.jdbc;
+
+import com.grzm.pqconninfo.alpha.BasicTestContext;
+import com.grzm.pqconninfo.alpha.MalformedConninfoException;
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.impl.EnumMapConninfoReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class JdbcUrlTest {
+
+    static EnumMap<PqConninfoOption, String> opts(String... kvs) {
+        EnumMap<PqConninfoOption, String> opts = new EnumMap<>(PqConninfoOption.class);
+        for (int i = 0; i < kvs.length; i += 2) {
+            opts.put(PqConninfoOption.valueOf(kvs[i]), kvs[i + 1]);
+        }
+        return opts;
+    }
+
+    static Stream<Arguments> urlProvider() {
+        return Stream.of(
+                arguments("jdbc:postgresql:/", opts()),
+                arguments("jdbc:postgresql:mydb", opts("DBNAME", "mydb")),
+                arguments("jdbc:postgresql://localhost/", opts("HOST", "localhost")),
+                arguments("jdbc:postgresql://localhost", opts("HOST", "localhost")),
+                arguments("jdbc:postgresql:///mydb", opts("DBNAME", "mydb")),
+                arguments("jdbc:postgresql://localhost:5433/my+db%21",
+                        opts("HOST", "localhost", "PORT", "5433", "DBNAME", "my db!")),
+                arguments("jdbc:postgresql://a:5432,b,c:5434/mydb",
+                        opts("HOST", "a,b,c", "PORT", "5432,,5434", "DBNAME", "mydb")),
+                arguments("jdbc:postgresql://a,b/mydb",
+                        opts("HOST", "a,b", "DBNAME", "mydb")),
+                arguments("jdbc:postgresql://[::1]:5433,[fe80::1]/mydb",
+                        opts("HOST", "::1,fe80::1", "PORT", "5433,", "DBNAME", "mydb")),
+                arguments("jdbc:postgresql://h/db?user=alice&password=p%40ss%26word%3D%3F",
+                        opts("HOST", "h", "DBNAME", "db", "USER", "alice",
+                                "PASSWORD", "p@ss&word=?")),
+                arguments("jdbc:postgresql://h/db?ApplicationName=my+app&connectTimeout=10"
+                                + "&kerberosServerName=krb&tcpKeepAlive=true&gsslib=sspi",
+                        opts("HOST", "h", "DBNAME", "db", "APPLICATION_NAME", "my app",
+                                "CONNECT_TIMEOUT", "10", "KRBSRVNAME", "krb",
+                                "KEEPALIVES", "1")),
+                arguments("jdbc:postgresql://h/db?targetServerType=preferSlave"
+                                + "&loadBalanceHosts=true&unknown=1&&flag",
+                        opts("HOST", "h", "DBNAME", "db",
+                                "TARGET_SESSION_ATTRS", "prefer-standby",
+                                "LOAD_BALANCE_HOSTS", "random")),
+                arguments("jdbc:postgresql://h/db?user=a&user=b&targetServerType=primary"
+                                + "&targetServerType=preferPrimary",
+                        opts("HOST", "h", "DBNAME", "db", "USER", "b")),
+                arguments("jdbc:postgresql://h/db?ssl=true",
+                        opts("HOST", "h", "DBNAME", "db", "SSLMODE", "verify-full")),
+                arguments("jdbc:postgresql://h/db?ssl",
+                        opts("HOST", "h", "DBNAME", "db", "SSLMODE", "verify-full")),
+                arguments("jdbc:postgresql://h/db?ssl=true&sslmode=require",
+                        opts("HOST", "h", "DBNAME", "db", "SSLMODE", "require")),
+                arguments("jdbc:postgresql://h/db?ssl=false",
+                        opts("HOST", "h", "DBNAME", "db"))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("urlProvider")
+    void parse(String url, EnumMap<PqConninfoOption, String> expected) {
+        assertEquals(expected, JdbcUrl.parse(url));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jdbc:mysql://localhost/db", "jdbc:postgresql://h:0/db",
+            "jdbc:postgresql://h:65536/db", "jdbc:postgresql://h:/db",
+            "jdbc:postgresql://h:54x/db", "jdbc:postgresql://h/db?user=%zz"})
+    void malformed(String url) {
+        assertThrows(MalformedConninfoException.class, () -> JdbcUrl.parse(url));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "jdbc:postgresql:/",
+            "jdbc:postgresql:mydb",
+            "jdbc:postgresql://localhost/",
+            "jdbc:postgresql://localhost:5433/mydb",
+            "jdbc:postgresql://a:5432,b:5433/mydb?user=alice&password=p%40ss%26word",
+            "jdbc:postgresql://[::1]:5433/mydb",
+            "jdbc:postgresql://h:5432/db?user=alice&sslmode=verify-full&connectTimeout=10"
+                    + "&ApplicationName=my%20app&tcpKeepAlive=false&gssencmode=prefer"
+                    + "&replication=database&targetServerType=secondary"
+                    + "&loadBalanceHosts=true"})
+    void roundTrips(String url) {
+        JdbcConnectionParameters params
+                = JdbcConnectionParameters.from(PqConninfo.from(JdbcUrl.parse(url)));
+        assertEquals(url, params.getUrlWithQueryString());
+    }
+
+    @Test
+    void readUrlFillsInPassword() {
+        HashMap<String, String> env = new HashMap<>();
+        env.put("PGAPPNAME", "env-app");
+        BasicTestContext context = new BasicTestContext(env);
+        context.setUserPassfileContents("b:5433:mydb:alice:b-password");
+
+        JdbcConnectionParameters params = JdbcConnectionParametersReader.readUrl(
+                new EnumMapConninfoReader(), context,
+                "jdbc:postgresql://a:5432,b:5433/mydb?user=alice");
+
+        assertEquals("b-password", params.getPassword());
+        assertEquals("jdbc:postgresql://a:5432,b:5433/mydb", params.getUrl());
+        assertEquals("jdbc:postgresql://a:5432,b:5433/mydb?user=alice&password=b-password"
+                + "&ApplicationName=env-app", params.getUrlWithQueryString());
+    }
+}
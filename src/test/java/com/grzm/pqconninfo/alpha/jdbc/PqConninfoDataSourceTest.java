@@ -0,0 +1,258 @@
+package com.grzm.pqconninfo.alpha.jdbc;
+
+import com.grzm.pqconninfo.alpha.BasicTestContext;
+import com.grzm.pqconninfo.alpha.Context;
+import com.grzm.pqconninfo.alpha.PqConninfo;
+import com.grzm.pqconninfo.alpha.PqConninfoOption;
+import com.grzm.pqconninfo.alpha.PqConninfoOptionsReader;
+import com.grzm.pqconninfo.alpha.impl.CachingConninfoReader;
+import com.grzm.pqconninfo.alpha.impl.EnumMapConninfoReader;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PqConninfoDataSourceTest {
+
+    static class CountingReader implements PqConninfoOptionsReader {
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public PqConninfo read(Context context, Properties props) {
+            reads.incrementAndGet();
+            return new EnumMapConninfoReader().read(context, props);
+        }
+    }
+
+    /**
+     * A driver recording the URL and Properties of each connection attempt,
+     * rejecting those the given predicate matches as authentication
+     * failures.
+     */
+    static class StubDriver implements Driver {
+        final List<String> urls = new ArrayList<>();
+        final List<Properties> infos = new ArrayList<>();
+        Predicate<Properties> rejects = info -> false;
+        boolean acceptsUrls = true;
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsUrls) {
+                return null;
+            }
+            urls.add(url);
+            infos.add(info);
+            if (rejects.test(info)) {
+                throw new SQLException("password authentication failed", "28P01");
+            }
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> null);
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return acceptsUrls;
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 0;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    final HashMap<String, String> env = new HashMap<String, String>() {{
+        put("PGHOST", "some-host");
+        put("PGDATABASE", "some-dbname");
+        put("PGUSER", "some-user");
+    }};
+    final BasicTestContext context = new BasicTestContext(env);
+    final CountingReader reader = new CountingReader();
+    final StubDriver driver = new StubDriver();
+    final AtomicLong clock = new AtomicLong();
+    final PqConninfoDataSource dataSource = new PqConninfoDataSource(
+            reader, context, new Properties(), driver, clock::get);
+
+    @Test
+    void resolvesOnce() throws SQLException {
+        context.setUserPassfileContents("*:*:*:*:some-password");
+        assertNotNull(dataSource.getConnection());
+        assertNotNull(dataSource.getConnection());
+
+        assertEquals(1, reader.reads.get());
+        assertEquals(2, driver.urls.size());
+        assertEquals("jdbc:postgresql://some-host/some-dbname", driver.urls.get(0));
+        assertEquals("some-user", driver.infos.get(1).getProperty("user"));
+        assertEquals("some-password", driver.infos.get(1).getProperty("password"));
+    }
+
+    @Test
+    void resolvesAgainWhenEnvironmentChanges() throws SQLException {
+        dataSource.getConnection();
+        env.put("PGHOST", "other-host");
+        // The fingerprint isn't checked again within the check interval.
+        clock.set(TimeUnit.MILLISECONDS.toNanos(
+                PqConninfoDataSource.DEFAULT_FINGERPRINT_CHECK_INTERVAL_MILLIS) - 1);
+        dataSource.getConnection();
+        assertEquals(1, reader.reads.get());
+
+        clock.set(TimeUnit.MILLISECONDS.toNanos(
+                PqConninfoDataSource.DEFAULT_FINGERPRINT_CHECK_INTERVAL_MILLIS));
+        dataSource.getConnection();
+
+        assertEquals(2, reader.reads.get());
+        assertEquals("jdbc:postgresql://other-host/some-dbname", driver.urls.get(2));
+    }
+
+    @Test
+    void checksFingerprintOnEveryConnectionWithZeroInterval() throws SQLException {
+        dataSource.setFingerprintCheckInterval(0, TimeUnit.SECONDS);
+        dataSource.getConnection();
+        env.put("PGHOST", "other-host");
+        dataSource.getConnection();
+
+        assertEquals(2, reader.reads.get());
+        assertEquals("jdbc:postgresql://other-host/some-dbname", driver.urls.get(1));
+        assertThrows(IllegalArgumentException.class,
+                () -> dataSource.setFingerprintCheckInterval(-1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void resolvesAgainWhenReported() throws SQLException {
+        dataSource.getConnection();
+        dataSource.reportAuthenticationFailure();
+        dataSource.getConnection();
+        assertEquals(2, reader.reads.get());
+
+        dataSource.fileChanged("/not/a/source/file");
+        dataSource.getConnection();
+        assertEquals(2, reader.reads.get());
+    }
+
+    @Test
+    void retriesOnceWithRotatedPassword() throws SQLException {
+        context.setUserPassfileContents("*:*:*:*:old-password");
+        driver.rejects = info -> "old-password".equals(info.getProperty("password"));
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(1, driver.urls.size());
+
+        context.setUserPassfileContents("*:*:*:*:new-password");
+        assertNotNull(dataSource.getConnection());
+
+        assertEquals(3, reader.reads.get());
+        assertEquals(3, driver.infos.size());
+        assertEquals("new-password", driver.infos.get(2).getProperty("password"));
+        assertEquals("new-password", dataSource.getParameters().getPassword());
+    }
+
+    @Test
+    void retriesWithRotatedPasswordThroughCachingReader() throws SQLException {
+        CachingConninfoReader cachingReader = new CachingConninfoReader(reader, 1, TimeUnit.HOURS);
+        PqConninfoDataSource cachingDataSource = new PqConninfoDataSource(
+                cachingReader, context, new Properties(), driver, clock::get);
+        context.setUserPassfileContents("*:*:*:*:old-password");
+        driver.rejects = info -> "old-password".equals(info.getProperty("password"));
+        assertThrows(SQLException.class, cachingDataSource::getConnection);
+
+        // The caching reader would still answer with the old password.
+        context.setUserPassfileContents("*:*:*:*:new-password");
+        assertNotNull(cachingDataSource.getConnection());
+
+        assertEquals(3, reader.reads.get());
+        assertEquals("new-password", driver.infos.get(2).getProperty("password"));
+        assertEquals("new-password", cachingReader.read(context, new Properties())
+                .get(PqConninfoOption.PASSWORD));
+    }
+
+    @Test
+    void rethrowsAuthenticationFailureWhenUnchanged() {
+        context.setUserPassfileContents("*:*:*:*:some-password");
+        driver.rejects = info -> true;
+        SQLException e = assertThrows(SQLException.class, dataSource::getConnection);
+
+        assertEquals("28P01", e.getSQLState());
+        assertEquals(2, reader.reads.get());
+        assertEquals(1, driver.urls.size());
+    }
+
+    @Test
+    void overridesUserAndPassword() throws SQLException {
+        context.setUserPassfileContents("*:*:*:*:some-password");
+        dataSource.setLoginTimeout(5);
+        dataSource.getConnection("other-user", "other-password");
+
+        Properties info = driver.infos.get(0);
+        assertEquals("other-user", info.getProperty("user"));
+        assertEquals("other-password", info.getProperty("password"));
+        assertEquals("5", info.getProperty("loginTimeout"));
+        assertEquals("some-user", dataSource.getParameters().getUser());
+    }
+
+    @Test
+    void doesNotRetryExplicitCredentials() {
+        context.setUserPassfileContents("*:*:*:*:some-password");
+        driver.rejects = info -> true;
+        SQLException e = assertThrows(SQLException.class,
+                () -> dataSource.getConnection("other-user", "other-password"));
+
+        assertEquals("28P01", e.getSQLState());
+        assertEquals(1, reader.reads.get());
+        assertEquals(1, driver.urls.size());
+    }
+
+    @Test
+    void noSuitableDriver() {
+        driver.acceptsUrls = false;
+        SQLException e = assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals("08001", e.getSQLState());
+    }
+
+    @Test
+    void authenticationFailureStates() {
+        assertTrue(PqConninfoDataSource.isAuthenticationFailure(
+                new SQLException("failed", "28000")));
+        assertFalse(PqConninfoDataSource.isAuthenticationFailure(
+                new SQLException("failed", "08006")));
+        assertFalse(PqConninfoDataSource.isAuthenticationFailure(
+                new SQLException("failed")));
+        SQLException chained = new SQLException("failed", "08006");
+        chained.setNextException(new SQLException("failed", "28P01"));
+        assertTrue(PqConninfoDataSource.isAuthenticationFailure(chained));
+    }
+}
@@ -0,0 +1,41 @@
+package com.grzm.pqconninfo.alpha.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringPoolTest {
+
+    @Test
+    void returnsPooledString() {
+        StringPool pool = new StringPool();
+        String first = new String("db.example.com");
+        assertSame(first, pool.get(first));
+        assertSame(first, pool.get(new String("db.example.com")));
+        assertSame(first, pool.get("host=db.example.com", 5, 19));
+        assertNull(pool.get(null));
+    }
+
+    @Test
+    void poolsRanges() {
+        StringPool pool = new StringPool();
+        String first = pool.get("port=5432", 5, 9);
+        assertEquals("5432", first);
+        assertSame(first, pool.get("5432:more", 0, 4));
+        assertSame(first, pool.get(new String("5432")));
+        assertEquals("", pool.get("x", 1, 1));
+    }
+
+    @Test
+    void collisionsReplaceBoundedSlots() {
+        // "Aa" and "BB" have the same hash code, so share a slot.
+        StringPool pool = new StringPool(1);
+        String aa = pool.get(new String("Aa"));
+        String bb = pool.get(new String("BB"));
+        assertEquals("BB", bb);
+        assertSame(bb, pool.get(new String("BB")));
+        String aa2 = new String("Aa");
+        assertSame(aa2, pool.get(aa2));
+        assertNotSame(aa, aa2);
+    }
+}